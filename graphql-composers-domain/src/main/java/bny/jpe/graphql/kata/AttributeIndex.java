@@ -0,0 +1,90 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import bny.jpe.graphql.kata.domain.Composer;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.map.MutableMap;
+
+/**
+ * Immutable inverted index from one composer attribute value to the set of catalogue slots holding that value.
+ * Published slot sets are never modified: a change copies the map and replaces only the sets it touches.
+ */
+final class AttributeIndex
+{
+    private final Function<Composer, String> getter;
+    private final ImmutableMap<String, SlotSet> slotsByValue;
+
+    AttributeIndex(Function<Composer, String> getter)
+    {
+        this(getter, Maps.immutable.empty());
+    }
+
+    private AttributeIndex(Function<Composer, String> getter, ImmutableMap<String, SlotSet> slotsByValue)
+    {
+        this.getter = getter;
+        this.slotsByValue = slotsByValue;
+    }
+
+    SlotSet slots(String value)
+    {
+        return slotsByValue.getIfAbsentValue(value, SlotSet.EMPTY);
+    }
+
+    AttributeIndex withAll(int firstSlot, ListIterable<Composer> composers)
+    {
+        MutableMap<String, MutableIntList> added = Maps.mutable.empty();
+        composers.forEachWithIndex((composer, i) -> {
+            String value = getter.apply(composer);
+            if (Objects.nonNull(value))
+            {
+                added.getIfAbsentPut(value, IntLists.mutable::empty).add(firstSlot + i);
+            }
+        });
+        int capacity = firstSlot + composers.size();
+        MutableMap<String, SlotSet> copy = Maps.mutable.withMapIterable(slotsByValue);
+        added.forEachKeyValue((value, slots) -> copy.put(value, slots(value).withAll(slots, capacity)));
+        return new AttributeIndex(getter, copy.toImmutable());
+    }
+
+    AttributeIndex replace(int slot, int capacity, Composer existing, Composer composer)
+    {
+        String previous = getter.apply(existing);
+        String value = getter.apply(composer);
+        if (Objects.equals(previous, value))
+        {
+            return this;
+        }
+        MutableMap<String, SlotSet> copy = Maps.mutable.withMapIterable(slotsByValue);
+        if (Objects.nonNull(previous))
+        {
+            copy.put(previous, slots(previous).without(slot));
+        }
+        if (Objects.nonNull(value))
+        {
+            copy.put(value, slots(value).with(slot, capacity));
+        }
+        return new AttributeIndex(getter, copy.toImmutable());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Composition;
+import bny.jpe.graphql.kata.domain.Concerto;
+import bny.jpe.graphql.kata.domain.Instrument;
+import bny.jpe.graphql.kata.domain.InstrumentType;
+import bny.jpe.graphql.kata.domain.Location;
+import bny.jpe.graphql.kata.domain.Period;
+import bny.jpe.graphql.kata.domain.Piece;
+import bny.jpe.graphql.kata.domain.Song;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * Generates synthetic composers for scale testing, e.g. {@code store.createAll(1_000_000, generator::composer)}.
+ * <p>
+ * Each composer is derived from the seed and its id alone, so a catalogue is the same whatever order or thread it is
+ * generated in, and two catalogues with the same seed are equal. Attributes are skewed the way a real catalogue is:
+ * most composers are Romantic or later, a few cities and the piano dominate, keys favour the common ones, and the
+ * number of compositions has a long tail, from a single work to a few hundred. Titles are unique per composer, as the
+ * database requires. Lyrics are drawn from a fixed set of texts up to 1000 characters long, so they are shared rather
+ * than allocated per song.
+ */
+public class CatalogueGenerator
+{
+    public static final int MAX_COMPOSITIONS = 500;
+    public static final int MAX_LYRICS = 1000;
+
+    private static final ImmutableList<Period> PERIODS = urn(Lists.immutable.of(Period.values()), 1, 3, 3, 6, 4, 3);
+    private static final ImmutableList<String> FIRST_NAMES = Lists.immutable.of(
+            "Johann", "Ludwig", "Wolfgang", "Clara", "Giovanni", "Sergei", "Maurice", "John", "Franz", "Fanny",
+            "Antonio", "Claude", "Hildegard", "Igor", "Dmitri", "Amy", "Gustav", "Lili", "Frédéric", "Nadia",
+            "Henry", "Barbara", "Arvo", "Florence", "Pyotr", "Kaija", "Edvard", "Ethel", "Béla", "Toru");
+    private static final ImmutableList<String> LAST_NAMES = Lists.immutable.of(
+            "Bach", "Schubert", "Mendelssohn", "Vivaldi", "Debussy", "Stravinsky", "Shostakovich", "Beach", "Mahler",
+            "Boulanger", "Purcell", "Strozzi", "Pärt", "Price", "Tchaikovsky", "Saariaho", "Grieg", "Smyth", "Bartók",
+            "Takemitsu", "Haydn", "Chopin", "Brahms", "Glass", "Reich", "Britten", "Verdi", "Dvořák", "Sibelius");
+    private static final ImmutableList<Location> LOCATIONS = urn(
+            Lists.immutable.of(new Location("Vienna", "Austria"),
+                               new Location("Paris", "France"),
+                               new Location("Leipzig", "Germany"),
+                               new Location("Berlin", "Germany"),
+                               new Location("London", "United Kingdom"),
+                               new Location("Rome", "Italy"),
+                               new Location("Venice", "Italy"),
+                               new Location("Moscow", "Russia"),
+                               new Location("Saint Petersburg", "Russia"),
+                               new Location("Prague", "Czech Republic"),
+                               new Location("Budapest", "Hungary"),
+                               new Location("New York", "United States"),
+                               new Location("Boston", "United States"),
+                               new Location("Helsinki", "Finland"),
+                               new Location("Oslo", "Norway"),
+                               new Location("Tokyo", "Japan"),
+                               new Location("Tallinn", "Estonia"),
+                               new Location("Buenos Aires", "Argentina")),
+            12, 10, 6, 6, 6, 5, 4, 5, 4, 3, 3, 5, 2, 2, 2, 2, 1, 1);
+    private static final ImmutableList<Instrument> INSTRUMENTS = urn(
+            Lists.immutable.of(ComposersSchema.PIANO,
+                               new Instrument("Violin", InstrumentType.STRING),
+                               ComposersSchema.ORGAN,
+                               new Instrument("Cello", InstrumentType.STRING),
+                               ComposersSchema.HARPSICHORD,
+                               ComposersSchema.CLARINET,
+                               new Instrument("Flute", InstrumentType.WOODWIND),
+                               new Instrument("Horn", InstrumentType.BRASS),
+                               new Instrument("Timpani", InstrumentType.PERCUSSION),
+                               new Instrument("Voice", InstrumentType.VOICE)),
+            20, 8, 4, 3, 2, 2, 2, 1, 1, 3);
+    private static final ImmutableList<String> KEYS = urn(
+            Lists.immutable.of("C", "G", "D", "A", "E", "F", "Bb", "Eb", "Am", "Dm", "Em", "Gm", "Cm", "Bm", "F#m",
+                               "C#m", "Ab", "B", "Fm", "Db", "F#", "G#m", "Ebm", "Bbm"),
+            10, 8, 8, 6, 5, 6, 5, 5, 5, 5, 4, 4, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1);
+    private static final ImmutableList<String> FORMS = urn(
+            Lists.immutable.of("Sonata", "Prelude", "Étude", "Nocturne", "Symphony", "String Quartet", "Fugue",
+                               "Mass", "Overture", "Suite"),
+            8, 5, 4, 3, 3, 3, 2, 1, 1, 2);
+    private static final ImmutableList<String> LYRICS = urn(lyrics(40, 80, 150, 250, 400, 600, 800, MAX_LYRICS),
+                                                            8, 10, 8, 5, 3, 2, 1, 1);
+    /**
+     * Birth years covered by each period, in the order of {@link Period#values()}.
+     */
+    private static final int[][] BIRTH_YEARS = {{1400, 1580}, {1570, 1720}, {1715, 1790}, {1770, 1880},
+                                                {1860, 1940}, {1920, 1995}};
+
+    private final long seed;
+
+    public CatalogueGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    public Composer composer(int id)
+    {
+        SplittableRandom random = new SplittableRandom(seed ^ id * 0x9E3779B97F4A7C15L);
+        Period period = pick(random, PERIODS);
+        int[] years = BIRTH_YEARS[period.ordinal()];
+        long firstDay = LocalDate.of(years[0], 1, 1).toEpochDay();
+        long lastDay = LocalDate.of(years[1], 12, 31).toEpochDay();
+        return new Composer(id,
+                            pick(random, FIRST_NAMES),
+                            // Unique per id, as first and last name together must be in the database.
+                            pick(random, LAST_NAMES) + " " + id,
+                            LocalDate.ofEpochDay(firstDay + random.nextLong(lastDay - firstDay + 1)),
+                            pick(random, LOCATIONS),
+                            pick(random, INSTRUMENTS),
+                            period,
+                            compositions(random));
+    }
+
+    private static MutableList<Composition> compositions(SplittableRandom random)
+    {
+        // Pareto with a minimum of one work: most composers have a handful, a few have hundreds.
+        int count = (int) Math.min(MAX_COMPOSITIONS, Math.floor(Math.pow(1 - random.nextDouble(), -1 / 1.2)));
+        MutableList<Composition> compositions = Lists.mutable.withInitialCapacity(count);
+        for (int i = 1; i <= count; i++)
+        {
+            // One key in thirty is left out, like atonal or unfinished works.
+            String key = random.nextInt(30) == 0 ? null : pick(random, KEYS);
+            int subtype = random.nextInt(20);
+            compositions.add(subtype < 14
+                                     ? new Piece(pick(random, FORMS) + " No. " + i, key)
+                                     : subtype < 17
+                                             ? new Concerto("Concerto No. " + i, key, pick(random, INSTRUMENTS))
+                                             : new Song("Song No. " + i, key, pick(random, LYRICS)));
+        }
+        return compositions;
+    }
+
+    private static <T> T pick(SplittableRandom random, ImmutableList<T> values)
+    {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * Repeats each value as many times as its weight, so a uniform pick follows the weights.
+     */
+    private static <T> ImmutableList<T> urn(ImmutableList<T> values, int... weights)
+    {
+        MutableList<T> urn = Lists.mutable.empty();
+        values.forEachWithIndex((value, index) -> {
+            for (int i = 0; i < weights[index]; i++)
+            {
+                urn.add(value);
+            }
+        });
+        return urn.toImmutable();
+    }
+
+    private static ImmutableList<String> lyrics(int... lengths)
+    {
+        String verse = """
+                How often has spring returned
+                For the dead and desolate world!
+                How often was spring greeted on all sides
+                By happy songs in wood and field!
+                """;
+        String text = verse.repeat(MAX_LYRICS / verse.length() + 1);
+        MutableList<String> lyrics = Lists.mutable.empty();
+        for (int length : lengths)
+        {
+            lyrics.add(text.substring(0, length));
+        }
+        return lyrics.toImmutable();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import bny.jpe.graphql.kata.ComposerStore.Attribute;
+import bny.jpe.graphql.kata.domain.Composer;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.IntIntMaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.ImmutableIntIntMap;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.impl.list.mutable.ListAdapter;
+
+/**
+ * An immutable version of the composer catalogue.
+ * Readers can hold on to a snapshot for as long as they like; writers derive a new snapshot from it.
+ */
+public final class ComposerSnapshot
+{
+    static final ComposerSnapshot EMPTY = new ComposerSnapshot(
+            Lists.immutable.empty(),
+            IntIntMaps.immutable.empty(),
+            Lists.immutable.of(Attribute.values()).collect(attribute -> new AttributeIndex(attribute.getter())),
+            0,
+            0);
+
+    private final ImmutableList<Composer> slots;
+    private final ImmutableIntIntMap slotsById;
+    private final ImmutableList<AttributeIndex> indexes;
+    private final long compositions;
+    private final int maxId;
+
+    private ComposerSnapshot(ImmutableList<Composer> slots,
+                             ImmutableIntIntMap slotsById,
+                             ImmutableList<AttributeIndex> indexes,
+                             long compositions,
+                             int maxId)
+    {
+        this.slots = slots;
+        this.slotsById = slotsById;
+        this.indexes = indexes;
+        this.compositions = compositions;
+        this.maxId = maxId;
+    }
+
+    public List<Composer> composers()
+    {
+        return slots.castToList();
+    }
+
+    public Composer get(int id)
+    {
+        return slotsById.containsKey(id) ? slots.get(slotsById.get(id)) : null;
+    }
+
+    /**
+     * The number of compositions of all composers, kept up to date by every change.
+     */
+    public long compositionCount()
+    {
+        return compositions;
+    }
+
+    public int maxId()
+    {
+        return maxId;
+    }
+
+    /**
+     * Selects the composers matching every non-blank value returned by {@code criteria}.
+     * A null or blank value leaves that attribute unfiltered.
+     */
+    public List<Composer> select(Function<Attribute, String> criteria)
+    {
+        MutableList<SlotSet> matching = filters(criteria);
+        if (matching.isEmpty())
+        {
+            return composers();
+        }
+
+        // Start from the most selective set so the intersection only ever shrinks.
+        matching.sortThisByInt(SlotSet::cardinality);
+        SlotSet smallest = matching.getFirst();
+        ListIterable<SlotSet> others = matching.subList(1, matching.size());
+        MutableList<Composer> selected = Lists.mutable.empty();
+        if (matching.allSatisfy(SlotSet::isBitmap))
+        {
+            BitSet matches = smallest.toBitSet();
+            others.forEach(other -> other.retainIn(matches));
+            matches.stream().forEach(slot -> selected.add(slots.get(slot)));
+        }
+        else
+        {
+            // A rare value: probing the others for each of its slots beats building bitmaps of the catalogue.
+            smallest.forEach(slot -> {
+                if (others.allSatisfy(other -> other.contains(slot)))
+                {
+                    selected.add(slots.get(slot));
+                }
+            });
+        }
+        return selected;
+    }
+
+    /**
+     * Selects, in id order, the first {@code limit} composers with an id above {@code afterId} that match
+     * {@code criteria} as in {@link #select}. Slots are not in id order when creates race, so ids are walked upwards
+     * through the id index and each one checked against the filters, stopping once the page is full; a page costs
+     * its size over the selectivity of the filters, wherever it starts. A rare value has fewer composers than such a
+     * walk would visit, so those are selected in full and sorted instead.
+     */
+    public List<Composer> selectAfter(Function<Attribute, String> criteria, int afterId, int limit)
+    {
+        MutableList<SlotSet> matching = filters(criteria);
+        if (matching.anySatisfy(filter -> !filter.isBitmap()))
+        {
+            return ListAdapter.adapt(select(criteria))
+                    .select(composer -> composer.id() > afterId)
+                    .sortThisByInt(Composer::id)
+                    .take(limit);
+        }
+        MutableList<Composer> selected = Lists.mutable.empty();
+        for (int id = Math.max(afterId, 0) + 1; id > 0 && id <= maxId && selected.size() < limit; id++)
+        {
+            int slot = slotsById.getIfAbsent(id, -1);
+            if (slot >= 0 && matching.allSatisfyWith(SlotSet::contains, slot))
+            {
+                selected.add(slots.get(slot));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * An upper bound on the number of composers {@link #select} returns for the same criteria, read from the index
+     * without selecting them: the count of the rarest value given, which is exact for a single filter.
+     */
+    public int estimateSelect(Function<Attribute, String> criteria)
+    {
+        return filters(criteria).collectInt(SlotSet::cardinality).minIfEmpty(slots.size());
+    }
+
+    private MutableList<SlotSet> filters(Function<Attribute, String> criteria)
+    {
+        MutableList<SlotSet> filters = Lists.mutable.empty();
+        for (Attribute attribute : Attribute.values())
+        {
+            String value = criteria.apply(attribute);
+            if (Objects.nonNull(value) && !value.isBlank())
+            {
+                filters.add(indexes.get(attribute.ordinal()).slots(value));
+            }
+        }
+        return filters;
+    }
+
+    ComposerSnapshot withAll(ListIterable<Composer> composers)
+    {
+        int firstSlot = slots.size();
+        MutableIntIntMap ids = IntIntMaps.mutable.withAll(slotsById);
+        composers.forEachWithIndex((composer, i) -> ids.put(composer.id(), firstSlot + i));
+        return new ComposerSnapshot(slots.newWithAll(composers),
+                                    ids.toImmutable(),
+                                    indexes.collect(index -> index.withAll(firstSlot, composers)),
+                                    compositions + composers.sumOfInt(composer -> composer.compositions().size()),
+                                    Math.max(maxId, composers.asLazy().collectInt(Composer::id).maxIfEmpty(0)));
+    }
+
+    ComposerSnapshot replace(Composer composer)
+    {
+        int slot = slotsById.getOrThrow(composer.id());
+        Composer existing = slots.get(slot);
+        MutableList<Composer> copy = slots.toList();
+        copy.set(slot, composer);
+        return new ComposerSnapshot(copy.toImmutable(),
+                                    slotsById,
+                                    indexes.collect(index -> index.replace(slot, slots.size(), existing, composer)),
+                                    compositions - existing.compositions().size() + composer.compositions().size(),
+                                    maxId);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Instrument;
+import bny.jpe.graphql.kata.domain.Location;
+import bny.jpe.graphql.kata.domain.Period;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.tuple.Twin;
+import org.eclipse.collections.impl.tuple.Tuples;
+
+/**
+ * In-memory composer catalogue backing {@link ComposersSchema}.
+ * Every composer occupies a fixed slot in the catalogue. A primitive id index maps ids to slots,
+ * and one inverted index per filterable {@link Attribute} maps each value to a bitmap of slots,
+ * so filtering intersects bitmaps instead of scanning the catalogue.
+ * <p>
+ * The catalogue is published as an immutable {@link ComposerSnapshot}. Readers never lock;
+ * writers build the next snapshot from the current one and publish it with a compare-and-set,
+ * retrying against the newer snapshot if another writer got there first.
+ */
+public class ComposerStore
+{
+    public enum Attribute
+    {
+        PERIOD("period", composer -> Optional.ofNullable(composer.period()).map(Period::name).orElse(null)),
+        COUNTRY("country", composer -> Optional.ofNullable(composer.location()).map(Location::country).orElse(null)),
+        CITY("city", composer -> Optional.ofNullable(composer.location()).map(Location::city).orElse(null)),
+        INSTRUMENT("instrument",
+                   composer -> Optional.ofNullable(composer.primaryInstrument()).map(Instrument::name).orElse(null)),
+        LAST_NAME("lastName", Composer::lastName);
+
+        private final String argument;
+        private final Function<Composer, String> getter;
+
+        Attribute(String argument, Function<Composer, String> getter)
+        {
+            this.argument = argument;
+            this.getter = getter;
+        }
+
+        public String argument()
+        {
+            return argument;
+        }
+
+        Function<Composer, String> getter()
+        {
+            return getter;
+        }
+    }
+
+    private final AtomicReference<ComposerSnapshot> current;
+    private final IdSequence ids;
+
+    public ComposerStore(ListIterable<Composer> composers)
+    {
+        this.current = new AtomicReference<>(ComposerSnapshot.EMPTY.withAll(composers));
+        this.ids = new IdSequence(current.get().maxId());
+    }
+
+    public ComposerSnapshot snapshot()
+    {
+        return current.get();
+    }
+
+    public Composer get(int id)
+    {
+        return snapshot().get(id);
+    }
+
+    /**
+     * Adds a composer built by {@code factory} from the next free id.
+     */
+    public Composer create(IntFunction<Composer> factory)
+    {
+        Composer composer = factory.apply(ids.next());
+        current.updateAndGet(snapshot -> snapshot.withAll(Lists.immutable.of(composer)));
+        return composer;
+    }
+
+    /**
+     * Adds {@code count} composers built by {@code factory}, reserving their ids as one block
+     * and publishing them together in a single snapshot.
+     */
+    public ListIterable<Composer> createAll(int count, IntFunction<Composer> factory)
+    {
+        ListIterable<Composer> composers = ids.nextBlock(count).collect(factory::apply);
+        current.updateAndGet(snapshot -> snapshot.withAll(composers));
+        return composers;
+    }
+
+    /**
+     * Replaces the composer with the given id by the result of {@code change}.
+     * The change may be applied more than once under contention, so it must not have side effects.
+     *
+     * @return the replaced composer and its replacement
+     */
+    public Twin<Composer> update(int id, UnaryOperator<Composer> change)
+    {
+        while (true)
+        {
+            ComposerSnapshot snapshot = current.get();
+            Composer existing = snapshot.get(id);
+            if (Objects.isNull(existing))
+            {
+                throw new NoSuchElementException("No composer with id " + id);
+            }
+            Composer updated = change.apply(existing);
+            if (current.compareAndSet(snapshot, snapshot.replace(updated)))
+            {
+                return Tuples.twin(existing, updated);
+            }
+        }
+    }
+}
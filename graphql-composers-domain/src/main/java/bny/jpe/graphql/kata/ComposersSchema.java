@@ -17,23 +17,25 @@
 package bny.jpe.graphql.kata;
 
 import bny.jpe.graphql.kata.domain.*;
-import graphql.com.google.common.base.Function;
+import graphql.GraphQL;
 import graphql.com.google.common.base.Supplier;
 import graphql.execution.DataFetcherResult;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
 import graphql.language.SourceLocation;
 import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLScalarType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
-import graphql.schema.idl.SchemaParser;
-import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.validation.ValidationError;
 import graphql.validation.ValidationErrorType;
-import org.eclipse.collections.api.block.predicate.Predicate;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.tuple.Twin;
 import org.eclipse.collections.impl.list.mutable.ListAdapter;
+import org.reactivestreams.Publisher;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -52,7 +54,7 @@ public class ComposersSchema
     public static final Instrument HARPSICHORD = new Instrument("Harpsichord", KEYBOARD);
     public static final Instrument CLARINET = new Instrument("Clarinet", WOODWIND);
 
-    private final MutableList<Composer> composers = Lists.mutable
+    private final ComposerStore store = new ComposerStore(Lists.mutable
             .of(new Composer(1,
                              "Johann",
                              "Bach",
@@ -135,51 +137,157 @@ public class ComposersSchema
                              POST_MODERN,
                              Lists.mutable.of(new Piece("4:33", null),
                                               new Piece("Organ² / ASLSP", "Bb")))
-            );
+            ));
 
+    private final PreparsedDocumentCache documentCache = new PreparsedDocumentCache(PreparsedDocumentCache.DEFAULT_SIZE);
+    private final long costBudget;
+    private final CostInstrumentation.OverBudget overBudget;
+    private final MeterRegistry meterRegistry;
+    private volatile GraphQL graphQL;
+
+    /**
+     * A schema that executes every operation whatever its estimated cost, and flags those over the default budget in
+     * the response extension. No metrics are recorded.
+     */
+    public ComposersSchema()
+    {
+        this(CostInstrumentation.DEFAULT_BUDGET, CostInstrumentation.OverBudget.WARN);
+    }
+
+    /**
+     * @param costBudget the estimated cost above which an operation is over budget
+     * @param overBudget what happens to an operation over budget
+     */
+    public ComposersSchema(long costBudget, CostInstrumentation.OverBudget overBudget)
+    {
+        this(costBudget, overBudget, null);
+    }
+
+    /**
+     * @param costBudget    the estimated cost above which an operation is over budget
+     * @param overBudget    what happens to an operation over budget
+     * @param meterRegistry where to record the {@link MetricsInstrumentation} meters, or {@code null} for none
+     */
+    public ComposersSchema(long costBudget, CostInstrumentation.OverBudget overBudget, MeterRegistry meterRegistry)
+    {
+        this.costBudget = costBudget;
+        this.overBudget = overBudget;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The executable schema is built on first use and reused afterwards.
+     */
     public GraphQLSchema initSchema()
     {
-        SchemaParser schemaParser = new SchemaParser();
-        SchemaGenerator schemaGenerator = new SchemaGenerator();
-        TypeDefinitionRegistry typeRegistry = schemaParser.parse(this.getClass()
-                                                                         .getResourceAsStream("/graphql/schema.graphqls"));
+        return graphQL().getGraphQLSchema();
+    }
+
+    /**
+     * A thread-safe engine bound to this instance's composers, built once and shared by all callers.
+     */
+    public GraphQL graphQL()
+    {
+        GraphQL engine = graphQL;
+        if (Objects.isNull(engine))
+        {
+            synchronized (this)
+            {
+                engine = graphQL;
+                if (Objects.isNull(engine))
+                {
+                    // Responses within the budget stay exactly as the kata expects them.
+                    MutableList<Instrumentation> instrumentations = Lists.mutable.of(
+                            new CostInstrumentation(costBudget, overBudget, this::estimateCardinality, false));
+                    if (Objects.nonNull(meterRegistry))
+                    {
+                        instrumentations.add(new MetricsInstrumentation(meterRegistry));
+                    }
+                    engine = GraphQL.newGraphQL(buildSchema())
+                            .preparsedDocumentProvider(documentCache)
+                            .instrumentation(new ChainedInstrumentation(instrumentations))
+                            .build();
+                    graphQL = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    public PreparsedDocumentCache documentCache()
+    {
+        return documentCache;
+    }
+
+    /**
+     * The catalogue behind this schema, for loading composers in bulk without going through mutations.
+     */
+    public ComposerStore store()
+    {
+        return store;
+    }
+
+    /**
+     * The list sizes named by the {@code @cost} directives, read from the current catalogue and narrowed by the
+     * same filters the fetchers apply.
+     */
+    private long estimateCardinality(String cardinality, Map<String, Object> arguments)
+    {
+        ComposerSnapshot snapshot = store.snapshot();
+        long composers = snapshot.composers().size();
+        return switch (cardinality)
+                {
+                    case "composers" -> snapshot.estimateSelect(
+                            attribute -> Objects.toString(arguments.get(attribute.argument()), null));
+                    // Rounded up, so a catalogue with any compositions never estimates zero.
+                    case "compositionsPerComposer" -> composers == 0
+                            ? 0
+                            : (snapshot.compositionCount() + composers - 1) / composers;
+                    default -> throw new IllegalArgumentException("Unknown cardinality: " + cardinality);
+                };
+    }
+
+    private GraphQLSchema buildSchema()
+    {
         RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
                 .scalar(GraphQLScalarType.newScalar().name("Date").coercing(new CoercingDate()).build())
                 .scalar(GraphQLScalarType.newScalar().name("Key").coercing(new CoercingKey()).build())
                 .type("Composition", builder -> builder
                         .typeResolver(env -> env.getSchema().getObjectType(env.getObject().getClass().getSimpleName())))
-                .type("Composer", builder -> builder.dataFetcher("compositions", this::getComposerCompositions))
+                .type("Composer", builder -> builder
+                        .dataFetcher("compositions", this::getComposerCompositions)
+                        .dataFetcher("compositionsConnection", this::getComposerCompositionsConnection))
                 .type("Query", builder -> builder
                         .dataFetcher("composer", this::getComposer)
-                        .dataFetcher("composers", this::getComposers))
+                        .dataFetcher("composers", this::getComposers)
+                        .dataFetcher("composersConnection", this::getComposersConnection))
                 .type("Mutation", builder -> builder
                         .dataFetcher("createComposer", this::addComposer)
                         .dataFetcher("updateComposer", this::updateComposer)
                         .dataFetcher("addCompositions", this::addCompositions)
                         .dataFetcher("deleteComposition", this::deleteComposition))
+                .type("Subscription", builder -> builder.dataFetcher("streamComposers", this::streamComposers))
                 .build();
-        return schemaGenerator.makeExecutableSchema(typeRegistry, wiring);
+        return new SchemaGenerator().makeExecutableSchema(ComposersTypeRegistry.get(), wiring);
     }
 
     private Composer getComposer(DataFetchingEnvironment env)
     {
-        return composers.select(c -> Integer.parseInt(env.getArgument("id")) == c.id()).getFirstOptional().get();
+        return store.get(Integer.parseInt(env.getArgument("id")));
     }
 
     private List<Composer> getComposers(DataFetchingEnvironment env)
     {
-        return composers.asLazy()
-                .select(comparingIfArg(env.getArgument("period"), c -> c.period().name()))
-                .select(comparingIfArg(env.getArgument("country"), c -> c.location().country()))
-                .select(comparingIfArg(env.getArgument("city"), c -> c.location().city()))
-                .select(comparingIfArg(env.getArgument("instrument"), c -> c.primaryInstrument().name()))
-                .select(comparingIfArg(env.getArgument("lastName"), c -> c.lastName()))
-                .toList();
+        return store.snapshot().select(attribute -> env.getArgument(attribute.argument()));
     }
 
-    private Predicate<Composer> comparingIfArg(String arg1, Function<Composer, String> function)
+    private Connection<Composer> getComposersConnection(DataFetchingEnvironment env)
     {
-        return (composer) -> Objects.isNull(arg1) || arg1.isBlank() || arg1.equals(function.apply(composer));
+        int first = Connection.pageSize(env.getArgument("first"));
+        int after = Edge.afterId(env.getArgument("after"));
+        List<Composer> page = store.snapshot()
+                .selectAfter(attribute -> env.getArgument(attribute.argument()), after, first + 1);
+        return Connection.of(ListAdapter.adapt(page).collect(composer -> Edge.of(composer.id(), composer)), first);
     }
 
     private List<Composition> getComposerCompositions(DataFetchingEnvironment environment)
@@ -191,33 +299,48 @@ public class ComposersSchema
                 : composer.compositions(composition -> type.equals(composition.getClass().getSimpleName()));
     }
 
+    /**
+     * Compositions have no id of their own here, so a cursor holds the composition's position in the composer's list.
+     */
+    private Connection<Composition> getComposerCompositionsConnection(DataFetchingEnvironment environment)
+    {
+        Composer composer = environment.getSource();
+        int first = Connection.pageSize(environment.getArgument("first"));
+        int after = Edge.afterId(environment.getArgument("after"));
+        String key = environment.getArgument("key");
+        String type = environment.getArgument("subtype");
+        MutableList<Edge<Composition>> fetched = Lists.mutable.empty();
+        List<Composition> compositions = composer.compositions();
+        for (int position = after + 1; position <= compositions.size() && fetched.size() <= first; position++)
+        {
+            Composition composition = compositions.get(position - 1);
+            if ((Objects.isNull(key) || key.equals(composition.key()))
+                && (Objects.isNull(type) || type.isBlank() || type.equals(composition.getClass().getSimpleName())))
+            {
+                fetched.add(Edge.of(position, composition));
+            }
+        }
+        return Connection.of(fetched, first);
+    }
+
+    private Publisher<Composer> streamComposers(DataFetchingEnvironment env)
+    {
+        return new IterablePublisher<>(store.snapshot().select(attribute -> env.getArgument(attribute.argument())));
+    }
+
     private Object addComposer(DataFetchingEnvironment environment)
     {
-        Composer composer = Composer
-                .fromInput(composers.collectInt(Composer::id).max() + 1, environment.getArgument("composer"));
-        composers.add(composer);
-        return composer;
+        return store.create(id -> Composer.fromInput(id, environment.getArgument("composer")));
     }
 
     private Object updateComposer(DataFetchingEnvironment environment)
     {
         int id = Integer.parseInt(environment.getArgument("id"));
-        Composer existing = composers.selectWith(this::matchesId, id).getFirstOptional().get();
         Composer input = Composer.fromInput(id, environment.getArgument("composer"));
+        Twin<Composer> replaced = store.update(id, existing -> merge(existing, input));
 
-        Composer updated = new Composer(id,
-                                        resolve(input::firstName, existing::firstName),
-                                        resolve(input::lastName, existing::lastName),
-                                        // Only update dateOfBirth if existing is null.
-                                        resolve(existing::dateOfBirth, input::dateOfBirth),
-                                        resolveLocation(input.location(), existing.location()),
-                                        resolveInstrument(input.primaryInstrument(), existing.primaryInstrument()),
-                                        resolve(input::period, existing::period),
-                                        Lists.mutable.empty());
-        composers.removeIfWith(this::matchesId, id);
-        composers.add(updated);
-        DataFetcherResult.Builder<Object> data = DataFetcherResult.newResult().data(updated);
-        if (!input.dateOfBirth().equals(existing.dateOfBirth()))
+        DataFetcherResult.Builder<Object> data = DataFetcherResult.newResult().data(replaced.getTwo());
+        if (!input.dateOfBirth().equals(replaced.getOne().dateOfBirth()))
         {
             SourceLocation sourceLocation = environment.getOperationDefinition()
                     .getVariableDefinitions().get(1).getType().getSourceLocation();
@@ -229,12 +352,26 @@ public class ComposersSchema
         return data.build();
     }
 
+    private Composer merge(Composer existing, Composer input)
+    {
+        return new Composer(existing.id(),
+                            resolve(input::firstName, existing::firstName),
+                            resolve(input::lastName, existing::lastName),
+                            // Only update dateOfBirth if existing is null.
+                            resolve(existing::dateOfBirth, input::dateOfBirth),
+                            resolveLocation(input.location(), existing.location()),
+                            resolveInstrument(input.primaryInstrument(), existing.primaryInstrument()),
+                            resolve(input::period, existing::period),
+                            Lists.mutable.empty());
+    }
+
     private List<Composition> addCompositions(DataFetchingEnvironment environment)
     {
         int composerId = Integer.parseInt(environment.getArgument("composerId"));
         List<Map> comps = environment.getArgument("compositions");
         MutableList<Composition> compositions = ListAdapter.adapt(comps).collect(this::mapComposition);
-        composers.detectWith(this::matchesId, composerId).compositions().addAll(compositions);
+        store.update(composerId, composer -> composer
+                .withCompositions(Lists.mutable.withAll(composer.compositions()).withAll(compositions)));
         return compositions;
     }
 
@@ -242,8 +379,10 @@ public class ComposersSchema
     {
         int composerId = Integer.parseInt(environment.getArgument("composerId"));
         String title = environment.getArgument("title");
-        return composers.detectWith(this::matchesId, composerId).compositions()
-                .removeIf(composition -> title.equals(composition.title()));
+        Twin<Composer> replaced = store.update(composerId, composer -> composer
+                .withCompositions(ListAdapter.adapt(composer.compositions())
+                                          .reject(composition -> title.equals(composition.title()))));
+        return replaced.getTwo().compositions().size() < replaced.getOne().compositions().size();
     }
 
     private Composition mapComposition(Map input)
@@ -257,11 +396,6 @@ public class ComposersSchema
                 };
     }
 
-    private boolean matchesId(Composer composer, int id)
-    {
-        return id == composer.id();
-    }
-
     private <T> T resolve(Supplier<T> update, Supplier<T> existing)
     {
         return Optional.ofNullable(update.get()).orElse(existing.get());
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+
+/**
+ * The parsed composers SDL, shared by every {@link ComposersSchema} in the JVM.
+ * <p>
+ * The registry is parsed once, on first use. When the build is run with the {@code precompile-schema} profile,
+ * {@link #main(String[])} serializes the parsed registry next to the SDL and later loads deserialize it instead of
+ * parsing. The serialized form records the SDL it was built from and is ignored once the SDL changes.
+ */
+public final class ComposersTypeRegistry
+{
+    public static final String SCHEMA = "/graphql/schema.graphqls";
+    public static final String PRECOMPILED_SCHEMA = "/graphql/schema.registry";
+
+    private ComposersTypeRegistry()
+    {
+    }
+
+    /**
+     * SchemaGenerator copies the registry before building a schema from it, so the shared instance is never modified.
+     */
+    public static TypeDefinitionRegistry get()
+    {
+        return Holder.TYPE_REGISTRY;
+    }
+
+    /**
+     * Writes the precompiled registry to the path given as the first argument.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String sdl = readSchema();
+        Path target = Path.of(args[0]);
+        Files.createDirectories(target.getParent());
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(target)))
+        {
+            out.writeUTF(fingerprint(sdl));
+            out.writeObject(new SchemaParser().parse(sdl));
+        }
+    }
+
+    private static TypeDefinitionRegistry load()
+    {
+        String sdl = readSchema();
+        try (InputStream precompiled = ComposersTypeRegistry.class.getResourceAsStream(PRECOMPILED_SCHEMA))
+        {
+            if (Objects.nonNull(precompiled))
+            {
+                ObjectInputStream in = new ObjectInputStream(precompiled);
+                if (fingerprint(sdl).equals(in.readUTF()))
+                {
+                    return (TypeDefinitionRegistry) in.readObject();
+                }
+            }
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            // An unreadable precompiled registry is only a missed optimisation; fall back to parsing.
+        }
+        return new SchemaParser().parse(sdl);
+    }
+
+    private static String readSchema()
+    {
+        try (InputStream sdl = ComposersTypeRegistry.class.getResourceAsStream(SCHEMA))
+        {
+            return new String(Objects.requireNonNull(sdl, SCHEMA).readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String fingerprint(String sdl)
+    {
+        return sdl.length() + ":" + sdl.hashCode();
+    }
+
+    private static final class Holder
+    {
+        private static final TypeDefinitionRegistry TYPE_REGISTRY = load();
+    }
+}
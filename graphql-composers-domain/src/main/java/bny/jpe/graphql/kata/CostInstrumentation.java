@@ -0,0 +1,206 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.kata;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.normalized.ExecutableNormalizedField;
+import graphql.schema.GraphQLAppliedDirective;
+import graphql.schema.GraphQLAppliedDirectiveArgument;
+import graphql.schema.GraphQLSchema;
+
+/**
+ * Estimates the cost of an operation once it is validated and before any field is fetched, and holds operations
+ * over a budget back.
+ * <p>
+ * The cost of a field is the {@code weight} of its {@code @cost} directive plus the cost of its selections, times
+ * its estimated size, so nested lists multiply. The size is the value of the directive's {@code slicingArgument},
+ * or its {@code assumedSize} when the argument is not given, or else the live estimate named by its
+ * {@code cardinality}, which the field's filter arguments may narrow. Fields without the directive only pass on the
+ * cost of their selections. The estimate is returned in the {@value #EXTENSION} response extension, of every
+ * operation or only of those over the budget.
+ */
+public class CostInstrumentation
+        extends SimplePerformantInstrumentation
+{
+    public static final String DIRECTIVE = "cost";
+    public static final String EXTENSION = "cost";
+    public static final long DEFAULT_BUDGET = 10_000;
+
+    public enum OverBudget
+    {
+        /**
+         * Fails the operation without executing it.
+         */
+        REJECT,
+        /**
+         * Executes the operation and flags it in the response extension.
+         */
+        WARN
+    }
+
+    /**
+     * Estimates the size of a list field from the name given by its {@code cardinality}.
+     */
+    @FunctionalInterface
+    public interface Cardinalities
+    {
+        /**
+         * @param arguments the field's arguments, so that filters can narrow the estimate
+         */
+        long estimate(String cardinality, Map<String, Object> arguments);
+    }
+
+    private final long budget;
+    private final OverBudget policy;
+    private final Cardinalities cardinalities;
+    private final boolean reportAll;
+
+    /**
+     * @param cardinalities estimates the size of a list field from its {@code cardinality} and arguments
+     * @param reportAll     whether to return the estimate of operations within the budget too
+     */
+    public CostInstrumentation(long budget,
+                               OverBudget policy,
+                               Cardinalities cardinalities,
+                               boolean reportAll)
+    {
+        this.budget = budget;
+        this.policy = policy;
+        this.cardinalities = cardinalities;
+        this.reportAll = reportAll;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters)
+    {
+        return new Cost();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters,
+            InstrumentationState state)
+    {
+        ExecutionContext context = parameters.getExecutionContext();
+        long estimated = cost(context.getGraphQLSchema(), context.getNormalizedQueryTree().get().getTopLevelFields());
+        ((Cost) state).estimated = estimated;
+        if (estimated > budget && policy == OverBudget.REJECT)
+        {
+            throw new AbortExecutionException("Operation cost " + estimated + " exceeds the budget of " + budget);
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult result,
+                                                                        InstrumentationExecutionParameters parameters,
+                                                                        InstrumentationState state)
+    {
+        Long estimated = ((Cost) state).estimated;
+        if (Objects.isNull(estimated) || estimated <= budget && !reportAll)
+        {
+            return CompletableFuture.completedFuture(result);
+        }
+        Map<String, Object> cost = new LinkedHashMap<>();
+        cost.put("estimated", estimated);
+        cost.put("budget", budget);
+        cost.put("overBudget", estimated > budget);
+        return CompletableFuture.completedFuture(
+                ExecutionResultImpl.newExecutionResult().from(result).addExtension(EXTENSION, cost).build());
+    }
+
+    private long cost(GraphQLSchema schema, List<ExecutableNormalizedField> fields)
+    {
+        long total = 0;
+        for (ExecutableNormalizedField field : fields)
+        {
+            total = saturatedAdd(total, cost(schema, field));
+        }
+        return total;
+    }
+
+    private long cost(GraphQLSchema schema, ExecutableNormalizedField field)
+    {
+        long selections = cost(schema, field.getChildren());
+        GraphQLAppliedDirective directive = field.getFieldDefinitions(schema).get(0).getAppliedDirective(DIRECTIVE);
+        if (Objects.isNull(directive))
+        {
+            return selections;
+        }
+        long weight = argument(directive, "weight", 0);
+        return saturatedMultiply(size(directive, field), saturatedAdd(weight, selections));
+    }
+
+    private long size(GraphQLAppliedDirective directive, ExecutableNormalizedField field)
+    {
+        String slicingArgument = argument(directive, "slicingArgument", null);
+        if (Objects.nonNull(slicingArgument))
+        {
+            Object slice = field.getResolvedArguments().get(slicingArgument);
+            return slice instanceof Number number ? number.longValue() : argument(directive, "assumedSize", 1);
+        }
+        String cardinality = argument(directive, "cardinality", null);
+        return Objects.nonNull(cardinality) ? cardinalities.estimate(cardinality, field.getResolvedArguments()) : 1;
+    }
+
+    private static <T> T argument(GraphQLAppliedDirective directive, String name, T absent)
+    {
+        GraphQLAppliedDirectiveArgument argument = directive.getArgument(name);
+        T value = Objects.nonNull(argument) && argument.hasSetValue() ? argument.getValue() : null;
+        return Objects.nonNull(value) ? value : absent;
+    }
+
+    private static long argument(GraphQLAppliedDirective directive, String name, long absent)
+    {
+        Number value = argument(directive, name, (Number) null);
+        return Objects.nonNull(value) ? value.longValue() : absent;
+    }
+
+    private static long saturatedAdd(long a, long b)
+    {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b)
+    {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+
+    private static final class Cost
+            implements InstrumentationState
+    {
+        private volatile Long estimated;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.collections.impl.list.primitive.IntInterval;
+
+/**
+ * Thread-safe allocator of composer ids, continuing from the highest id already in use.
+ */
+public class IdSequence
+{
+    private final AtomicInteger last;
+
+    public IdSequence(int last)
+    {
+        this.last = new AtomicInteger(last);
+    }
+
+    public int next()
+    {
+        return last.incrementAndGet();
+    }
+
+    /**
+     * Reserves {@code size} consecutive ids in one step.
+     */
+    public IntInterval nextBlock(int size)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException("Block size must be positive: " + size);
+        }
+        int first = last.getAndAdd(size) + 1;
+        return IntInterval.fromTo(first, first + size - 1);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.kata;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the elements of an iterable, taking the next element from its iterator only when the subscriber
+ * has asked for it. Each subscriber gets its own iterator.
+ */
+public class IterablePublisher<T>
+        implements Publisher<T>
+{
+    private final Iterable<T> elements;
+
+    public IterablePublisher(Iterable<T> elements)
+    {
+        this.elements = elements;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber)
+    {
+        subscriber.onSubscribe(new IteratorSubscription<>(elements.iterator(), subscriber));
+    }
+
+    private static final class IteratorSubscription<T>
+            implements Subscription
+    {
+        private final Iterator<T> iterator;
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean done;
+
+        private IteratorSubscription(Iterator<T> iterator, Subscriber<? super T> subscriber)
+        {
+            this.iterator = iterator;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Only the call that raises demand from zero emits, so a request made from within onNext
+         * adds to the demand being drained instead of recursing.
+         */
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Request must be positive: " + n));
+                return;
+            }
+            long previous = demand.getAndAccumulate(n, (current, more) -> current + more < 0
+                                                                           ? Long.MAX_VALUE
+                                                                           : current + more);
+            if (previous == 0)
+            {
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel()
+        {
+            done = true;
+        }
+
+        private void drain()
+        {
+            long requested = demand.get();
+            while (true)
+            {
+                long emitted = 0;
+                while (emitted < requested)
+                {
+                    if (done)
+                    {
+                        return;
+                    }
+                    if (!iterator.hasNext())
+                    {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(iterator.next());
+                    emitted++;
+                }
+                requested = demand.addAndGet(-emitted);
+                if (requested == 0)
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe, size-bounded map that evicts the least recently used entry, with hit, miss and eviction counters.
+ */
+public class LruCache<K, V>
+{
+    private final Map<K, V> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(int maximumSize)
+    {
+        if (maximumSize < 1)
+        {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                boolean full = size() > maximumSize;
+                if (full)
+                {
+                    evictions.increment();
+                }
+                return full;
+            }
+        };
+    }
+
+    public V get(K key)
+    {
+        V value;
+        synchronized (entries)
+        {
+            value = entries.get(key);
+        }
+        (Objects.isNull(value) ? misses : hits).increment();
+        return value;
+    }
+
+    /**
+     * Returns the cached value, computing and caching it on a miss.
+     * The computation runs outside the lock, so concurrent misses on the same key may compute it more than once.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> compute)
+    {
+        V value = get(key);
+        if (Objects.isNull(value))
+        {
+            value = compute.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public void put(K key, V value)
+    {
+        synchronized (entries)
+        {
+            entries.put(key, value);
+        }
+    }
+
+    public V remove(K key)
+    {
+        synchronized (entries)
+        {
+            return entries.remove(key);
+        }
+    }
+
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+}
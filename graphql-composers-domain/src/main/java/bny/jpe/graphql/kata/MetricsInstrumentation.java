@@ -0,0 +1,173 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records Micrometer meters for every operation and every data fetcher, tagged by operation name and, for fields,
+ * by schema coordinate ({@code Type.field}):
+ * <ul>
+ * <li>{@value #OPERATION_TIMER} and {@value #FIELD_TIMER}: latency histograms, with the outcome of each call;</li>
+ * <li>{@value #ERRORS}: errors returned, by classification, including those found before execution;</li>
+ * <li>{@value #FIELD_RESULT_SIZE}: the number of elements fetched by list fields.</li>
+ * </ul>
+ * Fields read from their parent object by the default property fetcher are not timed; they make up most fields
+ * of a response and cost next to nothing, so skipping them keeps the overhead low enough to leave on.
+ * Operation names are chosen by clients, so an application should bound the number of {@code operation} tags.
+ */
+public class MetricsInstrumentation
+        extends SimplePerformantInstrumentation
+{
+    public static final String OPERATION_TIMER = "graphql.operation";
+    public static final String FIELD_TIMER = "graphql.field";
+    public static final String ERRORS = "graphql.errors";
+    public static final String FIELD_RESULT_SIZE = "graphql.field.result.size";
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final MeterRegistry registry;
+    private final Meter.MeterProvider<Timer> operationTimers;
+    private final Meter.MeterProvider<Timer> fieldTimers;
+    private final Meter.MeterProvider<Counter> errors;
+    private final Meter.MeterProvider<DistributionSummary> resultSizes;
+
+    public MetricsInstrumentation(MeterRegistry registry)
+    {
+        this.registry = registry;
+        this.operationTimers = Timer.builder(OPERATION_TIMER)
+                .description("Time to execute an operation, from validation to the complete result")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .withRegistry(registry);
+        this.fieldTimers = Timer.builder(FIELD_TIMER)
+                .description("Time for a data fetcher to produce its value, including any batch it waits for")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .withRegistry(registry);
+        this.errors = Counter.builder(ERRORS)
+                .description("Errors returned in responses")
+                .withRegistry(registry);
+        this.resultSizes = DistributionSummary.builder(FIELD_RESULT_SIZE)
+                .description("Elements fetched by a list field")
+                .baseUnit("elements")
+                .withRegistry(registry);
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters)
+    {
+        return new Operation(Optional.ofNullable(parameters.getExecutionInput().getOperationName()).orElse(ANONYMOUS));
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters,
+            InstrumentationState state)
+    {
+        ExecutionContext context = parameters.getExecutionContext();
+        Operation operation = (Operation) state;
+        operation.name = Optional.ofNullable(context.getOperationDefinition().getName()).orElse(operation.name);
+        String type = context.getOperationDefinition().getOperation().name().toLowerCase(Locale.ROOT);
+        Timer.Sample sample = Timer.start(registry);
+        return SimpleInstrumentationContext.whenCompleted((result, exception) -> sample.stop(operationTimers.withTags(
+                "operation", operation.name,
+                "type", type,
+                "outcome", outcome(exception, Objects.nonNull(result) && !result.getErrors().isEmpty()))));
+    }
+
+    @Override
+    public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters,
+                                                          InstrumentationState state)
+    {
+        if (parameters.isTrivialDataFetcher())
+        {
+            return SimpleInstrumentationContext.noOp();
+        }
+        String operation = ((Operation) state).name;
+        String field = parameters.getExecutionStepInfo().getObjectType().getName()
+                       + "." + parameters.getField().getName();
+        Timer.Sample sample = Timer.start(registry);
+        return SimpleInstrumentationContext.whenCompleted((value, exception) -> {
+            Object data = value instanceof DataFetcherResult<?> result ? result.getData() : value;
+            boolean failed = value instanceof DataFetcherResult<?> result && result.hasErrors();
+            sample.stop(fieldTimers.withTags("operation", operation, "field", field,
+                                             "outcome", outcome(exception, failed)));
+            if (data instanceof Collection<?> elements)
+            {
+                resultSizes.withTags("operation", operation, "field", field).record(elements.size());
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult result,
+                                                                        InstrumentationExecutionParameters parameters,
+                                                                        InstrumentationState state)
+    {
+        String operation = ((Operation) state).name;
+        for (GraphQLError error : result.getErrors())
+        {
+            errors.withTags("operation", operation, "classification", String.valueOf(error.getErrorType())).increment();
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    private static String outcome(Throwable exception, boolean errors)
+    {
+        return Objects.nonNull(exception) ? "exception" : errors ? "error" : "success";
+    }
+
+    /**
+     * The name the operation's meters are tagged with; the document's name once known, else the requested one.
+     */
+    private static final class Operation
+            implements InstrumentationState
+    {
+        private volatile String name;
+
+        private Operation(String name)
+        {
+            this.name = name;
+        }
+    }
+}
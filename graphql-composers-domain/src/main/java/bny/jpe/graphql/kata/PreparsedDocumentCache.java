@@ -0,0 +1,72 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+
+/**
+ * Keeps the parsed and validated form of recently executed documents, so repeated operations skip both steps.
+ * Entries are keyed by the document text: its hash locates the entry and equality rules out collisions.
+ * A cache must only be shared by engines built from the same schema, since validation depends on it.
+ */
+public class PreparsedDocumentCache
+        implements PreparsedDocumentProvider
+{
+    public static final int DEFAULT_SIZE = 500;
+
+    private final LruCache<String, PreparsedDocumentEntry> documents;
+
+    public PreparsedDocumentCache(int maximumSize)
+    {
+        this.documents = new LruCache<>(maximumSize);
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate)
+    {
+        return documents.computeIfAbsent(executionInput.getQuery(), query -> parseAndValidate.apply(executionInput));
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(
+            ExecutionInput executionInput,
+            Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate)
+    {
+        return CompletableFuture.completedFuture(getDocument(executionInput, parseAndValidate));
+    }
+
+    public long hits()
+    {
+        return documents.hits();
+    }
+
+    public long misses()
+    {
+        return documents.misses();
+    }
+
+    public int size()
+    {
+        return documents.size();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.list.primitive.IntList;
+
+/**
+ * An immutable set of catalogue slots holding one attribute value. Common values are kept as a bitmap, which
+ * intersects fast; rare ones, such as a last name, as a sorted array, since a bitmap is as long as the catalogue
+ * whatever it holds.
+ */
+final class SlotSet
+{
+    static final SlotSet EMPTY = new SlotSet(null, new int[0]);
+
+    /**
+     * A bitmap costs one bit per catalogue slot and an array 32 bits per member; this picks the smaller.
+     */
+    private static final int BITS_PER_MEMBER = 32;
+
+    private final BitSet bitmap;
+    private final int[] sorted;
+    private final int cardinality;
+
+    private SlotSet(BitSet bitmap, int[] sorted)
+    {
+        this.bitmap = bitmap;
+        this.sorted = sorted;
+        this.cardinality = Objects.nonNull(bitmap) ? bitmap.cardinality() : sorted.length;
+    }
+
+    boolean isBitmap()
+    {
+        return Objects.nonNull(bitmap);
+    }
+
+    int cardinality()
+    {
+        return cardinality;
+    }
+
+    boolean contains(int slot)
+    {
+        return isBitmap() ? bitmap.get(slot) : Arrays.binarySearch(sorted, slot) >= 0;
+    }
+
+    void forEach(IntProcedure procedure)
+    {
+        if (isBitmap())
+        {
+            bitmap.stream().forEach(procedure::value);
+        }
+        else
+        {
+            for (int slot : sorted)
+            {
+                procedure.value(slot);
+            }
+        }
+    }
+
+    /**
+     * A bitmap the caller may modify.
+     */
+    BitSet toBitSet()
+    {
+        if (isBitmap())
+        {
+            return (BitSet) bitmap.clone();
+        }
+        BitSet copy = new BitSet();
+        forEach(copy::set);
+        return copy;
+    }
+
+    /**
+     * The members in ascending order; the array of an array-backed set, so callers must not modify it.
+     */
+    private int[] members()
+    {
+        return isBitmap() ? bitmap.stream().toArray() : sorted;
+    }
+
+    /**
+     * Clears from {@code matches} every slot not in this set.
+     */
+    void retainIn(BitSet matches)
+    {
+        matches.and(isBitmap() ? bitmap : toBitSet());
+    }
+
+    /**
+     * Adds slots in ascending order, all past the existing ones, to a catalogue now of {@code capacity} slots.
+     */
+    SlotSet withAll(IntList slots, int capacity)
+    {
+        int cardinality = cardinality() + slots.size();
+        if (cardinality * BITS_PER_MEMBER >= capacity)
+        {
+            BitSet copy = toBitSet();
+            slots.forEach(copy::set);
+            return new SlotSet(copy, null);
+        }
+        // A bitmap of a catalogue that has since grown may turn back into an array.
+        int[] members = members();
+        int[] copy = Arrays.copyOf(members, cardinality);
+        slots.forEachWithIndex((slot, i) -> copy[members.length + i] = slot);
+        return new SlotSet(null, copy);
+    }
+
+    SlotSet with(int slot, int capacity)
+    {
+        if (contains(slot))
+        {
+            return this;
+        }
+        int cardinality = cardinality() + 1;
+        if (cardinality * BITS_PER_MEMBER >= capacity)
+        {
+            BitSet copy = toBitSet();
+            copy.set(slot);
+            return new SlotSet(copy, null);
+        }
+        int[] members = members();
+        int insertion = -Arrays.binarySearch(members, slot) - 1;
+        int[] copy = new int[cardinality];
+        System.arraycopy(members, 0, copy, 0, insertion);
+        copy[insertion] = slot;
+        System.arraycopy(members, insertion, copy, insertion + 1, members.length - insertion);
+        return new SlotSet(null, copy);
+    }
+
+    SlotSet without(int slot)
+    {
+        if (!contains(slot))
+        {
+            return this;
+        }
+        if (isBitmap())
+        {
+            BitSet copy = toBitSet();
+            copy.clear(slot);
+            return new SlotSet(copy, null);
+        }
+        int removal = Arrays.binarySearch(sorted, slot);
+        int[] copy = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, removal);
+        System.arraycopy(sorted, removal + 1, copy, removal, copy.length - removal);
+        return new SlotSet(null, copy);
+    }
+}
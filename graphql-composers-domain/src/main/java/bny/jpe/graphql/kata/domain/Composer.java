@@ -19,6 +19,7 @@ package bny.jpe.graphql.kata.domain;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.eclipse.collections.api.block.predicate.Predicate;
@@ -33,6 +34,11 @@ public record Composer(int id,
                        Period period,
                        List<Composition> compositions)
 {
+    public Composer
+    {
+        compositions = Objects.isNull(compositions) ? List.of() : Lists.immutable.withAll(compositions).castToList();
+    }
+
     public static Composer fromInput(int id, Map<String, Object> input)
     {
 
@@ -47,6 +53,18 @@ public record Composer(int id,
                             List.of());
     }
 
+    public Composer withCompositions(List<Composition> compositions)
+    {
+        return new Composer(this.id,
+                            this.firstName,
+                            this.lastName,
+                            this.dateOfBirth,
+                            this.location,
+                            this.primaryInstrument,
+                            this.period,
+                            compositions);
+    }
+
     public List<Composition> compositions(Predicate<Composition> predicate)
     {
         return Lists.adapt(this.compositions).select(predicate);
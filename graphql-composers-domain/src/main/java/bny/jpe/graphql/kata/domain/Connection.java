@@ -0,0 +1,64 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.kata.domain;
+
+import java.util.List;
+import java.util.Objects;
+
+import graphql.GraphqlErrorException;
+
+/**
+ * One page of a Relay connection. Pages are read forwards only, by id, so {@code hasPreviousPage} is always false.
+ */
+public record Connection<T>(List<Edge<T>> edges, PageInfo pageInfo)
+{
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Builds a page of {@code first} edges from up to {@code first + 1} fetched in id order;
+     * the extra edge is only there to tell whether a next page exists.
+     */
+    public static <T> Connection<T> of(List<Edge<T>> fetched, int first)
+    {
+        List<Edge<T>> edges = List.copyOf(fetched.subList(0, Math.min(first, fetched.size())));
+        return new Connection<>(edges,
+                                new PageInfo(fetched.size() > first,
+                                             false,
+                                             edges.isEmpty() ? null : edges.get(0).cursor(),
+                                             edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor()));
+    }
+
+    /**
+     * The number of edges a page holds for the {@code first} argument, bounded so one request cannot read
+     * the whole catalogue.
+     */
+    public static int pageSize(Integer first)
+    {
+        if (Objects.isNull(first))
+        {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (first < 0 || first > MAX_PAGE_SIZE)
+        {
+            throw GraphqlErrorException.newErrorException()
+                    .message("first must be between 0 and " + MAX_PAGE_SIZE + ": " + first).build();
+        }
+        return first;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.kata.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+import graphql.GraphqlErrorException;
+
+/**
+ * A node in a {@link Connection}, with an opaque cursor encoding the id that the next page starts after.
+ */
+public record Edge<T>(String cursor, T node)
+{
+    private static final String PREFIX = "id:";
+
+    public static <T> Edge<T> of(int id, T node)
+    {
+        return new Edge<>(Base64.getUrlEncoder().encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8)), node);
+    }
+
+    /**
+     * The id encoded in an {@code after} cursor, or 0 for the first page.
+     */
+    public static int afterId(String cursor)
+    {
+        if (Objects.isNull(cursor))
+        {
+            return 0;
+        }
+        try
+        {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(PREFIX))
+            {
+                return Integer.parseInt(decoded.substring(PREFIX.length()));
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Not base64, or not a number; reported below like any other foreign cursor.
+        }
+        throw GraphqlErrorException.newErrorException().message("Invalid cursor: " + cursor).build();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import bny.jpe.graphql.kata.domain.Composer;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.impl.list.Interval;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AttributeIndexTest
+{
+    private static final ListIterable<Composer> FIXTURES = Lists.immutable.of(composer(1, "Bach"),
+                                                                              composer(2, "Mozart"),
+                                                                              composer(3, "Bach"));
+
+    @Test
+    public void addValuesToGrownCatalogue()
+    {
+        AttributeIndex index = new AttributeIndex(Composer::lastName).withAll(0, FIXTURES);
+        assertTrue(index.slots("Bach").isBitmap());
+
+        AttributeIndex grown = index.withAll(FIXTURES.size(), generated(1000).newWith(composer(1004, "Bach")));
+        SlotSet bach = grown.slots("Bach");
+        assertFalse(bach.isBitmap());
+        assertEquals(3, bach.cardinality());
+        assertTrue(bach.contains(0) && bach.contains(2) && bach.contains(1003));
+        assertTrue(index.slots("Bach").isBitmap(), "published sets are never modified");
+    }
+
+    @Test
+    public void replaceValueInEitherRepresentation()
+    {
+        AttributeIndex index = new AttributeIndex(Composer::lastName).withAll(0, FIXTURES);
+        AttributeIndex grown = index.withAll(FIXTURES.size(), generated(1000));
+
+        AttributeIndex renamed = grown.replace(1, FIXTURES.size() + 1000, FIXTURES.get(1), composer(2, "Bach"));
+        assertFalse(renamed.slots("Bach").isBitmap());
+        assertEquals(3, renamed.slots("Bach").cardinality());
+        assertEquals(0, renamed.slots("Mozart").cardinality());
+
+        AttributeIndex small = index.replace(1, FIXTURES.size(), FIXTURES.get(1), composer(2, "Bach"));
+        assertTrue(small.slots("Bach").isBitmap());
+        assertEquals(3, small.slots("Bach").cardinality());
+    }
+
+    /**
+     * Composers numbered from just past the fixtures, each with a last name of its own.
+     */
+    private static ImmutableList<Composer> generated(int count)
+    {
+        return Interval.fromTo(FIXTURES.size() + 1, FIXTURES.size() + count)
+                .collect(new CatalogueGenerator(1)::composer)
+                .toList()
+                .toImmutable();
+    }
+
+    private static Composer composer(int id, String lastName)
+    {
+        return new Composer(id, null, lastName, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import bny.jpe.graphql.kata.ComposerStore.Attribute;
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Composition;
+import bny.jpe.graphql.kata.domain.Piece;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.list.Interval;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ComposerStoreTest
+{
+    @Test
+    public void growFixturesWithGeneratedCatalogue()
+    {
+        ComposerStore store = new ComposersSchema().store();
+        int fixtures = store.snapshot().composers().size();
+        store.createAll(10_000, new CatalogueGenerator(1)::composer);
+        assertEquals(fixtures + 10_000, store.snapshot().composers().size());
+        assertEquals(List.of("Bach"), lastNames(store.snapshot().select(byLastName("Bach"))));
+
+        Composer generated = store.snapshot().composers().get(fixtures);
+        store.update(generated.id(), composer -> new Composer(composer.id(),
+                                                              composer.firstName(),
+                                                              "Bach",
+                                                              composer.dateOfBirth(),
+                                                              composer.location(),
+                                                              composer.primaryInstrument(),
+                                                              composer.period(),
+                                                              composer.compositions()));
+        assertEquals(List.of("Bach", "Bach"), lastNames(store.snapshot().select(byLastName("Bach"))));
+    }
+
+    @Test
+    public void selectMatchesScan()
+    {
+        ComposerStore store = new ComposersSchema().store();
+        store.createAll(5_000, new CatalogueGenerator(1)::composer);
+        ComposerSnapshot snapshot = store.snapshot();
+        Composer sample = snapshot.get(2_500);
+        List<Function<Attribute, String>> criteria = List.of(
+                attribute -> attribute == Attribute.PERIOD ? sample.period().name() : null,
+                attribute -> attribute == Attribute.COUNTRY || attribute == Attribute.INSTRUMENT
+                        ? attribute.getter().apply(sample)
+                        : null,
+                attribute -> attribute == Attribute.LAST_NAME ? null : attribute.getter().apply(sample),
+                attribute -> attribute.getter().apply(sample),
+                attribute -> attribute == Attribute.CITY ? "Atlantis" : null,
+                attribute -> " ");
+        for (Function<Attribute, String> filters : criteria)
+        {
+            List<Composer> scanned = snapshot.composers().stream()
+                    .filter(composer -> Stream.of(Attribute.values()).allMatch(attribute -> {
+                        String value = filters.apply(attribute);
+                        return Objects.isNull(value) || value.isBlank() || value.equals(attribute.getter().apply(composer));
+                    }))
+                    .toList();
+            assertEquals(scanned, snapshot.select(filters));
+        }
+    }
+
+    @Test
+    public void racingUpdatesKeepEveryChange() throws Exception
+    {
+        ComposerStore store = new ComposersSchema().store();
+        ComposerSnapshot before = store.snapshot();
+        int writers = 4;
+        int updates = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try
+        {
+            MutableList<Future<?>> running = Lists.mutable.empty();
+            for (int writer = 0; writer < writers; writer++)
+            {
+                running.add(executor.submit(() -> {
+                    for (int i = 0; i < updates; i++)
+                    {
+                        store.update(1, composer -> composer.withCompositions(
+                                Lists.mutable.withAll(composer.compositions()).with(new Piece("Invention", "C"))));
+                    }
+                }));
+            }
+            for (Future<?> writer : running)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        List<Composition> compositions = store.get(1).compositions();
+        assertEquals(3 + writers * updates, compositions.size());
+        assertEquals(3, before.get(1).compositions().size(), "published snapshots are never modified");
+        assertThrows(UnsupportedOperationException.class, () -> compositions.add(new Piece("Invention", "C")));
+    }
+
+    @Test
+    public void racingCreatesGetDistinctIds() throws Exception
+    {
+        ComposerStore store = new ComposersSchema().store();
+        int fixtures = store.snapshot().composers().size();
+        CatalogueGenerator generator = new CatalogueGenerator(1);
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try
+        {
+            MutableList<Future<?>> running = Lists.mutable.empty();
+            for (int writer = 0; writer < writers; writer++)
+            {
+                running.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++)
+                    {
+                        store.create(generator::composer);
+                    }
+                    store.createAll(50, generator::composer);
+                }));
+            }
+            for (Future<?> writer : running)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        int created = fixtures + writers * 150;
+        ComposerSnapshot snapshot = store.snapshot();
+        assertEquals(created, snapshot.composers().size());
+        assertEquals(created, snapshot.composers().stream().mapToInt(Composer::id).distinct().count());
+        assertEquals(created, snapshot.maxId());
+        assertEquals(created + 1, store.create(generator::composer).id());
+    }
+
+    @Test
+    public void countCompositionsOnWrite()
+    {
+        ComposerStore store = new ComposersSchema().store();
+        store.createAll(100, new CatalogueGenerator(1)::composer);
+        assertEquals(countCompositions(store.snapshot()), store.snapshot().compositionCount());
+
+        store.update(1, composer -> composer.withCompositions(List.of()));
+        store.update(2, composer -> composer.withCompositions(store.get(100).compositions()));
+        assertEquals(countCompositions(store.snapshot()), store.snapshot().compositionCount());
+    }
+
+    @Test
+    public void selectPageInIdOrder()
+    {
+        // Slots out of id order, as racing creates can leave them.
+        ComposerStore store = new ComposerStore(Interval.oneTo(2000)
+                                                        .collect(new CatalogueGenerator(1)::composer)
+                                                        .toList()
+                                                        .reverseThis());
+        ComposerSnapshot snapshot = store.snapshot();
+        Composer sample = snapshot.get(1000);
+        List<Function<Attribute, String>> criteria = List.of(
+                attribute -> null,
+                attribute -> attribute == Attribute.PERIOD ? sample.period().name() : null,
+                byLastName(sample.lastName()));
+        for (Function<Attribute, String> filters : criteria)
+        {
+            List<Composer> expected = snapshot.select(filters).stream()
+                    .filter(composer -> composer.id() > 500)
+                    .sorted(Comparator.comparingInt(Composer::id))
+                    .limit(21)
+                    .toList();
+            assertEquals(expected, snapshot.selectAfter(filters, 500, 21));
+        }
+        assertEquals(List.of(), snapshot.selectAfter(attribute -> null, 2000, 21));
+    }
+
+    private static long countCompositions(ComposerSnapshot snapshot)
+    {
+        return snapshot.composers().stream().mapToInt(composer -> composer.compositions().size()).sum();
+    }
+
+    private static Function<Attribute, String> byLastName(String lastName)
+    {
+        return attribute -> attribute == Attribute.LAST_NAME ? lastName : null;
+    }
+
+    private static List<String> lastNames(List<Composer> composers)
+    {
+        return composers.stream().map(Composer::lastName).toList();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import java.util.List;
+import java.util.Map;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CostInstrumentationTest
+{
+    @Test
+    public void filtersNarrowEstimate()
+    {
+        ComposersSchema schema = new ComposersSchema(CostInstrumentation.DEFAULT_BUDGET,
+                                                     CostInstrumentation.OverBudget.REJECT);
+        schema.store().createAll(20_000, new CatalogueGenerator(1)::composer);
+        String lastName = schema.store().get(1000).lastName();
+
+        ExecutionResult filtered = schema.graphQL().execute(ExecutionInput.newExecutionInput()
+                .query("query ($lastName: String) { composers(lastName: $lastName) { id } }")
+                .variables(Map.of("lastName", lastName)));
+        assertTrue(filtered.getErrors().isEmpty(), filtered.getErrors()::toString);
+        assertEquals(Map.of("composers", List.of(Map.of("id", "1000"))), filtered.getData());
+
+        ExecutionResult unfiltered = schema.graphQL().execute("{ composers { id } }");
+        assertEquals("Operation cost 20008 exceeds the budget of 10000", unfiltered.getErrors().get(0).getMessage());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import graphql.ExecutionResult;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsInstrumentationTest
+{
+    @Test
+    public void recordIntoInjectedRegistry()
+    {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try
+        {
+            ExecutionResult unmetered = new ComposersSchema().graphQL().execute("query byId { composer(id: 1) { id } }");
+            assertTrue(unmetered.getErrors().isEmpty(), unmetered.getErrors()::toString);
+            assertNull(registry.find(MetricsInstrumentation.OPERATION_TIMER).timer());
+        }
+        finally
+        {
+            Metrics.removeRegistry(registry);
+        }
+
+        ComposersSchema schema = new ComposersSchema(CostInstrumentation.DEFAULT_BUDGET,
+                                                     CostInstrumentation.OverBudget.REJECT,
+                                                     registry);
+        schema.graphQL().execute("query byId { composer(id: 1) { id } }");
+        assertEquals(1, registry.get(MetricsInstrumentation.OPERATION_TIMER)
+                .tags("operation", "byId", "type", "query")
+                .timer()
+                .count());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.kata;
+
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlotSetTest
+{
+    @Test
+    public void growingCatalogueTurnsBitmapIntoArray()
+    {
+        SlotSet bitmap = SlotSet.EMPTY.withAll(IntLists.immutable.of(0, 3), 8);
+        assertTrue(bitmap.isBitmap());
+
+        SlotSet added = bitmap.withAll(IntLists.immutable.of(500), 1000);
+        assertFalse(added.isBitmap());
+        assertEquals(IntLists.immutable.of(0, 3, 500), members(added));
+
+        SlotSet inserted = bitmap.with(1, 1000);
+        assertFalse(inserted.isBitmap());
+        assertEquals(IntLists.immutable.of(0, 1, 3), members(inserted));
+    }
+
+    @Test
+    public void commonValueTurnsArrayIntoBitmap()
+    {
+        SlotSet array = SlotSet.EMPTY.withAll(IntLists.immutable.of(2), 100);
+        assertFalse(array.isBitmap());
+
+        SlotSet inserted = array.with(1, 50);
+        assertTrue(inserted.isBitmap());
+        assertEquals(IntLists.immutable.of(1, 2), members(inserted));
+
+        SlotSet added = array.withAll(IntLists.immutable.of(7, 9), 90);
+        assertTrue(added.isBitmap());
+        assertEquals(IntLists.immutable.of(2, 7, 9), members(added));
+    }
+
+    @Test
+    public void removeFromEitherRepresentation()
+    {
+        SlotSet array = SlotSet.EMPTY.withAll(IntLists.immutable.of(1, 4, 6), 1000);
+        assertEquals(IntLists.immutable.of(1, 6), members(array.without(4)));
+        assertSame(array, array.without(5));
+
+        SlotSet bitmap = SlotSet.EMPTY.withAll(IntLists.immutable.of(1, 4, 6), 8);
+        assertEquals(IntLists.immutable.of(1, 6), members(bitmap.without(4)));
+        assertSame(bitmap, bitmap.with(6, 8));
+    }
+
+    private static MutableIntList members(SlotSet slots)
+    {
+        MutableIntList members = IntLists.mutable.empty();
+        slots.forEach(members::add);
+        assertEquals(members.size(), slots.cardinality());
+        return members;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import bny.jpe.graphql.kata.CatalogueGenerator;
+import bny.jpe.graphql.kata.ComposersSchema;
+import bny.jpe.graphql.kata.CostInstrumentation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Grows the eight fixtures of {@link ComposersSchema} to a benchmark's dataset size with generated composers.
+ * Every benchmark uses the same seed, so a given size always means the same catalogue.
+ */
+final class Catalogue
+{
+    static final long SEED = 1;
+    static final CatalogueGenerator GENERATOR = new CatalogueGenerator(SEED);
+    static final int FIXTURES = 8;
+
+    private Catalogue()
+    {
+    }
+
+    /**
+     * A schema whose store holds {@code size} composers, the fixtures included. Operations over the default cost
+     * budget are rejected and metrics are recorded, as a server would.
+     */
+    static ComposersSchema schema(int size)
+    {
+        ComposersSchema schema = new ComposersSchema(CostInstrumentation.DEFAULT_BUDGET,
+                                                     CostInstrumentation.OverBudget.REJECT,
+                                                     new SimpleMeterRegistry());
+        schema.store().createAll(size - FIXTURES, GENERATOR::composer);
+        return schema;
+    }
+}
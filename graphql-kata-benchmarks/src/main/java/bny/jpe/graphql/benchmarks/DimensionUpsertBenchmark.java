@@ -0,0 +1,116 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import bny.jpe.graphql.example.dao.ComposerRepository;
+import bny.jpe.graphql.example.entities.LocationEntity;
+
+/**
+ * Resolving a location that is not in the repository's dimension cache: the single {@code MERGE} statement of
+ * {@link ComposerRepository#UPSERT_LOCATION}, against the select-then-insert it replaced. Each invocation runs in its
+ * own transaction, either for a location that exists or for a new one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DimensionUpsertBenchmark
+{
+    @Param({"existing", "new"})
+    String location;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager manager;
+    private TransactionTemplate transactions;
+    private int created;
+
+    @Setup
+    public void setUp()
+    {
+        context = ExampleServer.start("upsert", Catalogue.FIXTURES);
+        manager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transactions = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    public Object merge()
+    {
+        String city = city();
+        return transactions.execute(status -> manager.createNativeQuery(ComposerRepository.UPSERT_LOCATION)
+                .setParameter(1, city)
+                .setParameter(2, "Austria")
+                .getSingleResult());
+    }
+
+    @Benchmark
+    public LocationEntity selectThenInsert()
+    {
+        String city = city();
+        return transactions.execute(status -> manager.createQuery("""
+                                                                          SELECT loc
+                                                                          FROM LocationEntity loc
+                                                                          WHERE loc.city = :city
+                                                                          AND loc.country = :country""",
+                                                                  LocationEntity.class)
+                .setParameter("city", city)
+                .setParameter("country", "Austria")
+                .getResultStream()
+                .findFirst()
+                .orElseGet(() -> {
+                    LocationEntity entity = new LocationEntity();
+                    entity.city = city;
+                    entity.country = "Austria";
+                    manager.persist(entity);
+                    return entity;
+                }));
+    }
+
+    private String city()
+    {
+        return "existing".equals(location) ? "Vienna" : "Vienna " + ++created;
+    }
+}
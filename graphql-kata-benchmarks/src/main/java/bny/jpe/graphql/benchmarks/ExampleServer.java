@@ -0,0 +1,45 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import bny.jpe.graphql.example.ComposersGraphQLServer;
+
+/**
+ * Starts the example server on its own in-memory H2 database, with the fixtures grown to a benchmark's dataset size
+ * by the same generator as {@link Catalogue}.
+ */
+final class ExampleServer
+{
+    private ExampleServer()
+    {
+    }
+
+    static ConfigurableApplicationContext start(String database, int size)
+    {
+        return new SpringApplicationBuilder(ComposersGraphQLServer.class)
+                .properties("server.port=0",
+                            "spring.datasource.url=jdbc:h2:mem:" + database,
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=warn",
+                            "composers.graphql.catalogue.size=" + Math.max(0, size - Catalogue.FIXTURES),
+                            "composers.graphql.catalogue.seed=" + Catalogue.SEED)
+                .run();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import bny.jpe.graphql.kata.ComposersSchema;
+import bny.jpe.graphql.kata.domain.Composer;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end {@link GraphQL#execute} on {@link ComposersSchema}, and the filtering behind its {@code composers}
+ * field, against catalogues of increasing size. Each operation is executed once during setup and fails the run if it
+ * returns errors, so a benchmark never silently measures a rejected operation. The estimated cost of a filtered
+ * operation grows with the matches of its filter, which for a period stay within the default budget at the largest
+ * size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark
+{
+    private static final String COMPOSER = """
+            query composer($id: ID!) {
+              composer(id: $id) { firstName lastName dateOfBirth location { city } compositions { title key } }
+            }""";
+    private static final String FILTERED = """
+            query filtered($period: Period) {
+              composers(period: $period) { firstName lastName location { city country } }
+            }""";
+    private static final String PAGE = """
+            query page($after: String) {
+              composersConnection(first: 20, after: $after) {
+                edges { cursor node { lastName compositions { title } } }
+                pageInfo { hasNextPage endCursor }
+              }
+            }""";
+
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private GraphQL graphQL;
+    private ComposersSchema schema;
+    private Map<String, Object> composer;
+    private Map<String, Object> filtered;
+    private Map<String, Object> page;
+
+    @Setup
+    public void setUp()
+    {
+        schema = Catalogue.schema(size);
+        graphQL = schema.graphQL();
+        composer = variables("id", String.valueOf(size / 2));
+        filtered = variables("period", "ROMANTIC");
+        page = variables("after", null);
+        for (ExecutionResult result : List.of(composerById(), filteredComposers(), firstPage()))
+        {
+            if (!result.getErrors().isEmpty())
+            {
+                throw new IllegalStateException(result.getErrors().toString());
+            }
+        }
+    }
+
+    @Benchmark
+    public ExecutionResult composerById()
+    {
+        return execute(COMPOSER, composer);
+    }
+
+    @Benchmark
+    public ExecutionResult filteredComposers()
+    {
+        return execute(FILTERED, filtered);
+    }
+
+    @Benchmark
+    public ExecutionResult firstPage()
+    {
+        return execute(PAGE, page);
+    }
+
+    /**
+     * The {@code composers} data fetcher without the engine: two indexed attributes intersected.
+     */
+    @Benchmark
+    public List<Composer> selectComposers()
+    {
+        return schema.store().snapshot().select(attribute -> switch (attribute)
+                {
+                    case PERIOD -> "ROMANTIC";
+                    case COUNTRY -> "Germany";
+                    default -> null;
+                });
+    }
+
+    /**
+     * Each execution gets its own input, as a request would; only the document is shared, through the cache.
+     */
+    private ExecutionResult execute(String query, Map<String, Object> variables)
+    {
+        return graphQL.execute(ExecutionInput.newExecutionInput(query).variables(variables));
+    }
+
+    private static Map<String, Object> variables(String name, Object value)
+    {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put(name, value);
+        return variables;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import bny.jpe.graphql.example.dao.ComposerRepository;
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Composition;
+import bny.jpe.graphql.kata.domain.Connection;
+import bny.jpe.graphql.kata.domain.Period;
+
+/**
+ * The read paths of {@link ComposerRepository} against H2, through the Spring proxy so each call runs in its own
+ * transaction as it does when serving a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark
+{
+    private static final ImmutableList<String> LOCATION = Lists.immutable.of("location");
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private ConfigurableApplicationContext context;
+    private ComposerRepository repository;
+    private Set<Integer> batch;
+    private String lastName;
+
+    @Setup
+    public void setUp()
+    {
+        context = ExampleServer.start("repository", size);
+        repository = context.getBean(ComposerRepository.class);
+        lastName = Catalogue.GENERATOR.composer(size / 2).lastName();
+        batch = IntStream.range(size / 2, size / 2 + 100).boxed().collect(Collectors.toSet());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    public Composer composerById()
+    {
+        return repository.composer(size / 2, LOCATION);
+    }
+
+    @Benchmark
+    public List<Composer> composersByLastName()
+    {
+        return repository.composers(null, null, null, null, lastName, LOCATION);
+    }
+
+    /**
+     * About three composers in ten, so the cost grows with the catalogue.
+     */
+    @Benchmark
+    public List<Composer> composersByPeriod()
+    {
+        return repository.composers(Period.ROMANTIC, null, null, null, null, LOCATION);
+    }
+
+    @Benchmark
+    public Connection<Composer> pageFromTheMiddle()
+    {
+        return repository.composersPage(null, null, null, null, null, size / 2, 20, LOCATION);
+    }
+
+    /**
+     * What the batch loader asks for when a page of 100 composers selects their compositions.
+     */
+    @Benchmark
+    public Map<Integer, List<Composition>> compositionsOfHundredComposers()
+    {
+        return repository.compositionsByComposer(batch, true);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import bny.jpe.graphql.kata.CoercingDate;
+import bny.jpe.graphql.kata.CoercingKey;
+import graphql.language.StringValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The custom scalars, which run once per value in every response and for every argument of their type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalarBenchmark
+{
+    private final CoercingKey key = new CoercingKey();
+    private final CoercingDate date = new CoercingDate();
+    private final StringValue keyLiteral = StringValue.of("C#m");
+    private final StringValue dateLiteral = StringValue.of("1770-12-16");
+    private final LocalDate birthday = LocalDate.of(1770, 12, 16);
+
+    @Benchmark
+    public String serializeKey()
+    {
+        return key.serialize("C#m");
+    }
+
+    @Benchmark
+    public String parseKeyLiteral()
+    {
+        return key.parseLiteral(keyLiteral);
+    }
+
+    @Benchmark
+    public Object serializeDate()
+    {
+        return date.serialize(birthday);
+    }
+
+    @Benchmark
+    public LocalDate parseDateValue()
+    {
+        return date.parseValue("1770-12-16");
+    }
+
+    @Benchmark
+    public LocalDate parseDateLiteral()
+    {
+        return date.parseLiteral(dateLiteral);
+    }
+}
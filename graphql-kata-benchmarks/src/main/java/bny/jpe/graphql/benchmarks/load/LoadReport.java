@@ -0,0 +1,104 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The outcome of a load test, written as JSON and compared with a stored baseline.
+ *
+ * @param latencyMillis     from when each request was due to its response, so requests held back by a slow server
+ *                          count the time they waited (coordinated-omission correction)
+ * @param serviceTimeMillis from when each request was sent to its response, as most clients report it
+ */
+record LoadReport(double targetRate,
+                  int users,
+                  long durationSeconds,
+                  long requests,
+                  double throughput,
+                  double errorRate,
+                  double http2Share,
+                  Percentiles latencyMillis,
+                  Percentiles serviceTimeMillis,
+                  Map<String, Outcomes> operations)
+{
+    /**
+     * Latency differences below this are noise at the scale of a local run, whatever the tolerance.
+     */
+    static final double LATENCY_SLACK_MILLIS = 1;
+    static final double ERROR_RATE_SLACK = 0.001;
+
+    record Percentiles(double p50, double p99, double p999, double max)
+    {
+        /**
+         * @param histogram values in microseconds
+         */
+        static Percentiles of(Histogram histogram)
+        {
+            return new Percentiles(histogram.getValueAtPercentile(50) / 1000.0,
+                                   histogram.getValueAtPercentile(99) / 1000.0,
+                                   histogram.getValueAtPercentile(99.9) / 1000.0,
+                                   histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    record Outcomes(long requests, long errors)
+    {
+    }
+
+    /**
+     * Describes every way this run is worse than {@code baseline} by more than {@code tolerance}, a fraction of the
+     * baseline value. Error rates are compared in absolute terms, since the baseline's is usually zero.
+     */
+    List<String> regressions(LoadReport baseline, double tolerance)
+    {
+        List<String> regressions = new ArrayList<>();
+        if (targetRate != baseline.targetRate())
+        {
+            regressions.add("baseline was recorded at " + baseline.targetRate() + " requests/s, not " + targetRate);
+            return regressions;
+        }
+        slower("p50", latencyMillis.p50(), baseline.latencyMillis().p50(), tolerance, regressions);
+        slower("p99", latencyMillis.p99(), baseline.latencyMillis().p99(), tolerance, regressions);
+        slower("p99.9", latencyMillis.p999(), baseline.latencyMillis().p999(), tolerance, regressions);
+        if (throughput < baseline.throughput() * (1 - tolerance))
+        {
+            regressions.add("throughput " + throughput + " requests/s, baseline " + baseline.throughput());
+        }
+        if (errorRate > baseline.errorRate() + ERROR_RATE_SLACK)
+        {
+            regressions.add("error rate " + errorRate + ", baseline " + baseline.errorRate());
+        }
+        if (http2Share < 1)
+        {
+            regressions.add("only " + http2Share + " of responses came over HTTP/2");
+        }
+        return regressions;
+    }
+
+    private static void slower(String percentile, double value, double baseline, double tolerance, List<String> out)
+    {
+        if (value > baseline * (1 + tolerance) + LATENCY_SLACK_MILLIS)
+        {
+            out.add(percentile + " latency " + value + " ms, baseline " + baseline + " ms");
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import bny.jpe.graphql.benchmarks.load.LoadReport.Outcomes;
+import bny.jpe.graphql.benchmarks.load.LoadReport.Percentiles;
+import bny.jpe.graphql.benchmarks.load.OperationMix.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Replays a weighted mix of GraphQL operations against a running server over HTTP/2 (cleartext, upgraded from
+ * HTTP/1.1) at a fixed target rate, and compares the latencies with a stored baseline.
+ * <p>
+ * Requests are due at evenly spaced times and shared out among a fixed number of users, each of which waits for its
+ * response before sending its next request. A user that falls behind sends its overdue requests straight away, and
+ * latency is measured from when a request was due rather than when it went out, so a stalled server is charged for
+ * the requests it held back instead of being measured only on the ones it let through. The warmup runs its own
+ * schedule before the measured one.
+ * <p>
+ * Options are given as {@code --name=value}; see {@link #DEFAULTS}. With {@code --update-baseline} the report
+ * replaces the baseline; otherwise the process exits with status 1 when the run regresses against it.
+ */
+public final class LoadTest
+{
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("url", "http://localhost:8080"),
+            // Requests per second, and how many users share them.
+            Map.entry("rate", "50"),
+            Map.entry("users", "8"),
+            // HTTP/2 connections, each multiplexing the requests of its share of the users.
+            Map.entry("connections", "2"),
+            Map.entry("warmup-seconds", "30"),
+            Map.entry("duration-seconds", "30"),
+            Map.entry("mix", "classpath:load/mix.json"),
+            Map.entry("documents", "graphql-spring-boot-example/src/main/resources/graphql-persisted"),
+            // Upper bound of the composer ids given to $randomId variables.
+            Map.entry("ids", "8"),
+            Map.entry("report", "load-report.json"),
+            Map.entry("baseline", ""),
+            // Fraction by which latency or throughput may be worse than the baseline.
+            Map.entry("tolerance", "0.25"),
+            Map.entry("update-baseline", "false"));
+    /**
+     * The profile runs the server on the same machine, which then needs cores for both.
+     */
+    private static final int MIN_PROCESSORS = 4;
+    private static final Duration SERVER_START_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<String, String> options;
+    private final URI graphql;
+    private final List<HttpClient> clients;
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder http2 = new LongAdder();
+    private final Map<String, LongAdder[]> outcomes = new ConcurrentHashMap<>();
+    private final AtomicLong lastResponse = new AtomicLong();
+
+    private LoadTest(Map<String, String> options)
+    {
+        this.options = options;
+        this.graphql = URI.create(options.get("url") + "/graphql");
+        this.clients = IntStream.range(0, Integer.parseInt(options.get("connections")))
+                .mapToObj(i -> HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .build())
+                .toList();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args)
+        {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (!DEFAULTS.containsKey(option[0]))
+            {
+                throw new IllegalArgumentException("Unknown option " + arg + "; known options: " + DEFAULTS.keySet());
+            }
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        System.exit(new LoadTest(options).run() ? 0 : 1);
+    }
+
+    /**
+     * @return whether the run is within the tolerance of the baseline, or there is no baseline to compare with
+     */
+    private boolean run() throws Exception
+    {
+        OperationMix mix;
+        try (InputStream in = open(options.get("mix")))
+        {
+            mix = OperationMix.read(mapper, in, Path.of(options.get("documents")));
+        }
+        if (Runtime.getRuntime().availableProcessors() < MIN_PROCESSORS)
+        {
+            System.out.println("WARNING: fewer than " + MIN_PROCESSORS + " processors available; latencies will include"
+                               + " contention with the server for CPU");
+        }
+        awaitServer();
+
+        LoadReport report = replay(mix);
+        Path reportFile = Path.of(options.get("report"));
+        mapper.writeValue(reportFile.toFile(), report);
+        System.out.println(mapper.writeValueAsString(report));
+
+        String baselineOption = options.get("baseline");
+        if (baselineOption.isEmpty())
+        {
+            return true;
+        }
+        Path baseline = Path.of(baselineOption);
+        if (Boolean.parseBoolean(options.get("update-baseline")))
+        {
+            Files.copy(reportFile, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return true;
+        }
+        if (Files.notExists(baseline))
+        {
+            System.out.println("No baseline at " + baseline + "; run with --update-baseline to record one");
+            return true;
+        }
+        List<String> regressions = report.regressions(mapper.readValue(baseline.toFile(), LoadReport.class),
+                                                      Double.parseDouble(options.get("tolerance")));
+        regressions.forEach(regression -> System.out.println("REGRESSION: " + regression));
+        return regressions.isEmpty();
+    }
+
+    /**
+     * Polls the readiness probe over every connection, which also establishes them before the clock starts.
+     */
+    private void awaitServer() throws InterruptedException
+    {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(options.get("url") + "/actuator/health/readiness"))
+                .build();
+        long deadline = System.nanoTime() + SERVER_START_TIMEOUT.toNanos();
+        for (HttpClient client : clients)
+        {
+            while (true)
+            {
+                try
+                {
+                    if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                    {
+                        break;
+                    }
+                }
+                catch (IOException e)
+                {
+                    // Not listening yet.
+                }
+                if (System.nanoTime() > deadline)
+                {
+                    throw new IllegalStateException("No ready server at " + options.get("url"));
+                }
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    private LoadReport replay(OperationMix mix) throws InterruptedException
+    {
+        double rate = Double.parseDouble(options.get("rate"));
+        int users = Integer.parseInt(options.get("users"));
+        long duration = Long.parseLong(options.get("duration-seconds"));
+
+        // The measured schedule starts afresh, so requests a cold server fell behind on are not charged to it.
+        replay(mix, rate, users, Long.parseLong(options.get("warmup-seconds")), false);
+        long measureFrom = System.nanoTime();
+        long end = replay(mix, rate, users, duration, true);
+
+        long requests = latency.getTotalCount();
+        double elapsed = Math.max(end, lastResponse.get()) - measureFrom;
+        Map<String, Outcomes> byOperation = new TreeMap<>();
+        outcomes.forEach((name, counts) -> byOperation.put(name, new Outcomes(counts[0].sum(), counts[1].sum())));
+        return new LoadReport(rate,
+                              users,
+                              duration,
+                              requests,
+                              requests / (elapsed / TimeUnit.SECONDS.toNanos(1)),
+                              requests == 0 ? 0 : (double) errors.sum() / requests,
+                              requests == 0 ? 0 : (double) http2.sum() / requests,
+                              Percentiles.of(latency),
+                              Percentiles.of(serviceTime),
+                              byOperation);
+    }
+
+    /**
+     * @return when the last request was due
+     */
+    private long replay(OperationMix mix, double rate, int users, long seconds, boolean measured)
+            throws InterruptedException
+    {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        for (int user = 0; user < users; user++)
+        {
+            int first = user;
+            HttpClient client = clients.get(user % clients.size());
+            executor.execute(() -> {
+                for (long due = start + first * interval; due < end; due += users * interval)
+                {
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime())
+                    {
+                        LockSupport.parkNanos(wait);
+                    }
+                    send(client, mix, due, measured);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + REQUEST_TIMEOUT.toSeconds() * 2 + 60, TimeUnit.SECONDS);
+        return end;
+    }
+
+    private void send(HttpClient client, OperationMix mix, long due, boolean measured)
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Operation operation = mix.pick(random);
+        boolean failed;
+        boolean overHttp2 = false;
+        long sent = System.nanoTime();
+        try
+        {
+            HttpRequest request = HttpRequest.newBuilder(graphql)
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            OperationMix.body(mapper, operation, random, Integer.parseInt(options.get("ids")))))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            overHttp2 = response.version() == HttpClient.Version.HTTP_2;
+            failed = response.statusCode() != 200 || response.body().contains("\"errors\"");
+        }
+        catch (IOException e)
+        {
+            failed = true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long received = System.nanoTime();
+        if (!measured)
+        {
+            return;
+        }
+        lastResponse.accumulateAndGet(received, Math::max);
+        latency.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(received - due)));
+        serviceTime.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(received - sent)));
+        LongAdder[] counts = outcomes.computeIfAbsent(operation.name(), name -> new LongAdder[]{new LongAdder(),
+                                                                                                new LongAdder()});
+        counts[0].increment();
+        if (failed)
+        {
+            errors.increment();
+            counts[1].increment();
+        }
+        if (overHttp2)
+        {
+            http2.increment();
+        }
+    }
+
+    private static InputStream open(String location) throws IOException
+    {
+        return location.startsWith("classpath:")
+                ? Objects.requireNonNull(LoadTest.class.getClassLoader().getResourceAsStream(location.substring(10)),
+                                         location)
+                : Files.newInputStream(Path.of(location));
+    }
+}
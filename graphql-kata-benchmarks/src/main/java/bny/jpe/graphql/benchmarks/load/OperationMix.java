@@ -0,0 +1,107 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.benchmarks.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The operations a load test replays and how often, read from a JSON mix such as {@code load/mix.json}:
+ * each entry names a document by its file name without extension, its weight and its variables. Each request
+ * replaces {@value #RANDOM_ID} in the variables' text with a random composer id, so it does not hit the same rows.
+ */
+record OperationMix(List<Operation> operations, int totalWeight)
+{
+    static final String RANDOM_ID = "$randomId";
+
+    record Operation(String name, int weight, Map<String, Object> variables, String document)
+    {
+    }
+
+    static OperationMix read(ObjectMapper mapper, InputStream mix, Path documents) throws IOException
+    {
+        List<Operation> operations = List.of(mapper.readValue(mix, Operation[].class)).stream()
+                .map(operation -> new Operation(operation.name(),
+                                                operation.weight(),
+                                                operation.variables(),
+                                                document(documents, operation.name())))
+                .toList();
+        return new OperationMix(operations, operations.stream().mapToInt(Operation::weight).sum());
+    }
+
+    Operation pick(RandomGenerator random)
+    {
+        int ticket = random.nextInt(totalWeight);
+        for (Operation operation : operations)
+        {
+            ticket -= operation.weight();
+            if (ticket < 0)
+            {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Weights changed while picking");
+    }
+
+    /**
+     * The request body for one execution of {@code operation}, with the same random id in every variable.
+     */
+    static String body(ObjectMapper mapper, Operation operation, RandomGenerator random, int ids)
+            throws JsonProcessingException
+    {
+        String id = String.valueOf(1 + random.nextInt(ids));
+        return mapper.writeValueAsString(Map.of("query", operation.document(),
+                                                "variables", substitute(operation.variables(), id)));
+    }
+
+    private static Object substitute(Object value, String id)
+    {
+        if (value instanceof String text)
+        {
+            return text.replace(RANDOM_ID, id);
+        }
+        if (value instanceof Map<?, ?> map)
+        {
+            Map<Object, Object> substituted = new LinkedHashMap<>();
+            map.forEach((name, nested) -> substituted.put(name, substitute(nested, id)));
+            return substituted;
+        }
+        return value;
+    }
+
+    private static String document(Path documents, String name)
+    {
+        try
+        {
+            return Files.readString(documents.resolve(name + ".graphql"));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
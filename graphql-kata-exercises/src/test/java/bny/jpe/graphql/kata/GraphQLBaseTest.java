@@ -39,7 +39,7 @@ public abstract class GraphQLBaseTest
     @BeforeAll
     public void setUp()
     {
-        graphQL = GraphQL.newGraphQL(new ComposersSchema().initSchema()).build();
+        graphQL = new ComposersSchema().graphQL();
         DefaultIndenter indenter = new DefaultIndenter().withLinefeed("\n");
         mapper = new ObjectMapper().findAndRegisterModules();
         writer = mapper.writer(new DefaultPrettyPrinter().withObjectIndenter(indenter).withArrayIndenter(indenter));
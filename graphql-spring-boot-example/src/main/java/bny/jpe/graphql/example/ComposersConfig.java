@@ -16,13 +16,45 @@
 
 package bny.jpe.graphql.example;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.graphql.execution.DataFetcherExceptionResolver;
+import org.springframework.graphql.execution.ErrorType;
 import org.springframework.graphql.execution.RuntimeWiringConfigurer;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
 
+import bny.jpe.graphql.example.dao.CatalogueLoader;
+import bny.jpe.graphql.example.dao.TableStatistics;
+import bny.jpe.graphql.example.events.ComposerEvents;
+import bny.jpe.graphql.example.execution.GraphQlGetHandler;
+import bny.jpe.graphql.example.execution.PersistedQueryDocumentProvider;
+import bny.jpe.graphql.example.execution.PersistedQueryRegistry;
+import bny.jpe.graphql.example.execution.QueryResultCache;
+import bny.jpe.graphql.kata.CatalogueGenerator;
 import bny.jpe.graphql.kata.CoercingDate;
 import bny.jpe.graphql.kata.CoercingKey;
+import bny.jpe.graphql.kata.CostInstrumentation;
+import bny.jpe.graphql.kata.CostInstrumentation.OverBudget;
+import bny.jpe.graphql.kata.MetricsInstrumentation;
+import bny.jpe.graphql.kata.PreparsedDocumentCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphqlErrorBuilder;
+import graphql.GraphqlErrorException;
 import graphql.schema.GraphQLScalarType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
 
 @Configuration
 public class ComposersConfig
@@ -34,4 +66,110 @@ public class ComposersConfig
                 .scalar(GraphQLScalarType.newScalar().name("Date").coercing(new CoercingDate()).build())
                 .scalar(GraphQLScalarType.newScalar().name("Key").coercing(new CoercingKey()).build());
     }
+
+    /**
+     * Reports invalid arguments rejected by the domain, such as a malformed cursor, instead of an internal error.
+     */
+    @Bean
+    DataFetcherExceptionResolver argumentErrorResolver()
+    {
+        return DataFetcherExceptionResolver.forSingleError((ex, env) -> ex instanceof GraphqlErrorException
+                ? GraphqlErrorBuilder.newError(env).errorType(ErrorType.BAD_REQUEST).message(ex.getMessage()).build()
+                : null);
+    }
+
+    @Bean
+    PreparsedDocumentCache preparsedDocumentCache(@Value("${composers.graphql.document-cache-size}") int size)
+    {
+        return new PreparsedDocumentCache(size);
+    }
+
+    @Bean
+    PersistedQueryRegistry persistedQueryRegistry(
+            @Value("${composers.graphql.persisted-queries.size}") int size,
+            @Value("${composers.graphql.persisted-queries.preload}") Resource[] preload)
+    {
+        PersistedQueryRegistry registry = new PersistedQueryRegistry(size);
+        registry.preload(preload);
+        return registry;
+    }
+
+    @Bean
+    GraphQlSourceBuilderCustomizer preparsedDocumentCustomizer(PreparsedDocumentCache preparsedDocumentCache,
+                                                               PersistedQueryRegistry persistedQueryRegistry)
+    {
+        PersistedQueryDocumentProvider provider =
+                new PersistedQueryDocumentProvider(persistedQueryRegistry, preparsedDocumentCache);
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(provider));
+    }
+
+    @Bean
+    QueryResultCache queryResultCache(@Value("${composers.graphql.result-cache-size}") int size,
+                                      @Value("${composers.graphql.result-cache-tags}") int tags)
+    {
+        return new QueryResultCache(size, tags);
+    }
+
+    /**
+     * Boot adds every instrumentation bean to the engine.
+     */
+    @Bean
+    CostInstrumentation costInstrumentation(@Value("${composers.graphql.cost.budget}") long budget,
+                                            @Value("${composers.graphql.cost.over-budget}") OverBudget policy,
+                                            TableStatistics statistics)
+    {
+        return new CostInstrumentation(budget, policy, statistics::estimate, true);
+    }
+
+    @Bean
+    MetricsInstrumentation metricsInstrumentation(MeterRegistry meterRegistry)
+    {
+        return new MetricsInstrumentation(meterRegistry);
+    }
+
+    /**
+     * Operation names come from clients; past the limit, meters for further names are not registered at all.
+     */
+    @Bean
+    MeterFilter operationTagLimit(@Value("${composers.graphql.metrics.max-operations}") int maxOperations)
+    {
+        return MeterFilter.maximumAllowableTags("graphql", "operation", maxOperations, MeterFilter.deny());
+    }
+
+    /**
+     * Grows the catalogue with generated composers before the application reports ready, for scale testing.
+     */
+    @Bean
+    ApplicationRunner syntheticCatalogue(@Value("${composers.graphql.catalogue.size}") int size,
+                                         @Value("${composers.graphql.catalogue.seed}") long seed,
+                                         CatalogueLoader loader)
+    {
+        return args -> {
+            if (size > 0)
+            {
+                loader.load(new CatalogueGenerator(seed), size);
+            }
+        };
+    }
+
+    @Bean
+    ComposerEvents composerEvents(@Value("${composers.graphql.subscriptions.buffer-size}") int bufferSize)
+    {
+        return new ComposerEvents(bufferSize);
+    }
+
+    /**
+     * Boot only maps POST to the GraphQL endpoint; this route takes GET ahead of it.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    RouterFunction<ServerResponse> graphQlGetRouterFunction(
+            @Value("${spring.graphql.path:/graphql}") String path,
+            @Value("${composers.graphql.get-max-age}") Duration maxAge,
+            WebGraphQlHandler webGraphQlHandler,
+            ObjectMapper objectMapper)
+    {
+        GraphQlGetHandler handler = new GraphQlGetHandler(webGraphQlHandler, objectMapper, maxAge);
+        return RouterFunctions.route(RequestPredicates.GET(path), handler::handleRequest);
+    }
 }
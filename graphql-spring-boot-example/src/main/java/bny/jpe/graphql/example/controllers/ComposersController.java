@@ -18,44 +18,75 @@ package bny.jpe.graphql.example.controllers;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
 import bny.jpe.graphql.example.dao.ComposerRepository;
+import bny.jpe.graphql.example.events.ComposerEvents;
+import bny.jpe.graphql.example.execution.QueryResultCache;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.impl.factory.Lists;
-import org.eclipse.collections.impl.list.mutable.ListAdapter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import bny.jpe.graphql.kata.domain.Composer;
 import bny.jpe.graphql.kata.domain.ComposerInput;
 import bny.jpe.graphql.kata.domain.Composition;
 import bny.jpe.graphql.kata.domain.CompositionInput;
+import bny.jpe.graphql.kata.domain.Connection;
+import bny.jpe.graphql.kata.domain.Edge;
 import bny.jpe.graphql.kata.domain.Period;
+import graphql.GraphQLContext;
 import graphql.GraphqlErrorException;
 import graphql.execution.DataFetcherResult;
+import graphql.schema.DataFetchingFieldSelectionSet;
 
 @Controller
 public class ComposersController
 {
+    private static final String COMPOSITIONS_LOADER = "compositions";
+
+    /**
+     * Result cache tag of every composers() list, whose membership any created or updated composer may change.
+     */
+    private static final String COMPOSER_LISTS = "composers";
+
     private final ComposerRepository dao;
+    private final QueryResultCache resultCache;
+    private final ComposerEvents events;
 
     @Autowired
-    public ComposersController(ComposerRepository dao)
+    public ComposersController(ComposerRepository dao,
+                               QueryResultCache resultCache,
+                               ComposerEvents events,
+                               BatchLoaderRegistry registry)
     {
         this.dao = dao;
+        this.resultCache = resultCache;
+        this.events = events;
+        registry.<Integer, List<Composition>>forName(COMPOSITIONS_LOADER)
+                .registerMappedBatchLoader((composerIds, env) -> Mono.fromCallable(
+                        () -> dao.compositionsByComposer(composerIds, anySelects(env, "soloInstrument"))));
     }
 
     @QueryMapping
-    public Composer composer(@Argument int id)
+    public Composer composer(@Argument int id, DataFetchingFieldSelectionSet selection, GraphQLContext context)
     {
-        return ListAdapter.adapt(dao.allComposers()).detect(c -> id == c.id());
+        QueryResultCache.tag(context, composerTag(id));
+        return dao.composer(id, selection);
     }
 
     @QueryMapping
@@ -63,32 +94,88 @@ public class ComposersController
                                     @Argument String country,
                                     @Argument String city,
                                     @Argument String instrument,
-                                    @Argument String lastName)
+                                    @Argument String lastName,
+                                    DataFetchingFieldSelectionSet selection,
+                                    GraphQLContext context)
     {
-        return selectIfPresent(period, Composer::period)
-                .andThen(selectIfPresent(country, c -> c.location().country()))
-                .andThen(selectIfPresent(city, c -> c.location().city()))
-                .andThen(selectIfPresent(instrument, c -> c.primaryInstrument().name()))
-                .andThen(selectIfPresent(lastName, Composer::lastName))
-                .apply(Lists.adapt(dao.allComposers()));
+        List<Composer> composers = dao.composers(period, country, city, instrument, lastName, selection);
+        QueryResultCache.tag(context, COMPOSER_LISTS);
+        composers.forEach(composer -> QueryResultCache.tag(context, composerTag(composer.id())));
+        return composers;
+    }
+
+    @QueryMapping
+    public Connection<Composer> composersConnection(@Argument Integer first,
+                                                    @Argument String after,
+                                                    @Argument Period period,
+                                                    @Argument String country,
+                                                    @Argument String city,
+                                                    @Argument String instrument,
+                                                    @Argument String lastName,
+                                                    DataFetchingFieldSelectionSet selection,
+                                                    GraphQLContext context)
+    {
+        Connection<Composer> page = dao.composersPage(period, country, city, instrument, lastName,
+                                                      Edge.afterId(after), Connection.pageSize(first), selection);
+        QueryResultCache.tag(context, COMPOSER_LISTS);
+        page.edges().forEach(edge -> QueryResultCache.tag(context, composerTag(edge.node().id())));
+        return page;
+    }
+
+    @SubscriptionMapping
+    public Flux<Composer> streamComposers(@Argument Period period,
+                                          @Argument String country,
+                                          @Argument String city,
+                                          @Argument String instrument,
+                                          @Argument String lastName,
+                                          DataFetchingFieldSelectionSet selection)
+    {
+        return dao.streamComposers(period, country, city, instrument, lastName, selection);
+    }
+
+    @SubscriptionMapping
+    public Flux<Composer> composerChanged()
+    {
+        return events.composerChanges();
+    }
+
+    /**
+     * Events only carry the composer's id. The composer is read once an event leaves the subscriber's buffer,
+     * so a subscriber always gets the compositions as committed, however far behind it is.
+     */
+    @SubscriptionMapping
+    public Flux<Composer> compositionsChanged(@Argument int composerId, DataFetchingFieldSelectionSet selection)
+    {
+        return events.compositionsChanges(composerId)
+                .concatMap(id -> Mono.fromCallable(() -> dao.composer(id, selection))
+                        .subscribeOn(Schedulers.boundedElastic()));
     }
 
     @MutationMapping
     public Composer createComposer(@Argument ComposerInput composer)
     {
-        return dao.addComposer(composer);
+        Composer created = dao.addComposer(composer);
+        resultCache.invalidate(COMPOSER_LISTS, composerTag(created.id()));
+        events.composerChanged(created);
+        return created;
     }
 
     @MutationMapping
     public Composer updateComposer(@Argument int id, @Argument ComposerInput composer)
     {
-        return dao.updateComposer(id, composer);
+        Composer updated = dao.updateComposer(id, composer);
+        resultCache.invalidate(COMPOSER_LISTS, composerTag(id));
+        events.composerChanged(updated);
+        return updated;
     }
 
     @MutationMapping
     public List<Composition> addCompositions(@Argument int composerId, @Argument List<CompositionInput> compositions)
     {
-        return dao.addCompositions(composerId, compositions);
+        List<Composition> added = dao.addCompositions(composerId, compositions);
+        resultCache.invalidate(composerTag(composerId));
+        events.compositionsChanged(composerId);
+        return added;
     }
 
     @MutationMapping
@@ -96,7 +183,10 @@ public class ComposersController
     {
         try
         {
-            return DataFetcherResult.<Boolean>newResult().data(dao.deleteComposition(composerId, title)).build();
+            boolean deleted = dao.deleteComposition(composerId, title);
+            resultCache.invalidate(composerTag(composerId));
+            events.compositionsChanged(composerId);
+            return DataFetcherResult.<Boolean>newResult().data(deleted).build();
         }
         catch (EmptyResultDataAccessException e)
         {
@@ -105,16 +195,56 @@ public class ComposersController
         }
     }
 
+    private static String composerTag(int id)
+    {
+        return "composer:" + id;
+    }
+
+    /**
+     * Whether any of the fields in a batch selects {@code field}; each load passes its selection set as key context.
+     */
+    private static boolean anySelects(BatchLoaderEnvironment env, String field)
+    {
+        return env.getKeyContexts().values().stream()
+                .anyMatch(selection -> ((DataFetchingFieldSelectionSet) selection).contains(field));
+    }
+
     private <T, R> UnaryOperator<MutableList<T>> selectIfPresent(R param, Function<T, R> getter)
     {
         return list -> Objects.nonNull(param) ? list.select(c -> param.equals(getter.apply(c))) : list;
     }
 
+    /**
+     * Compositions of every composer in the result are loaded together, with one query, once the field is selected.
+     * A {@code @BatchMapping} cannot take the field arguments, so the batch goes through a named data loader and
+     * the filters are applied to each composer's compositions.
+     */
+    @SchemaMapping
+    public CompletableFuture<List<Composition>> compositions(Composer composer,
+                                                             @Argument String key,
+                                                             @Argument String subtype,
+                                                             DataFetchingFieldSelectionSet selection,
+                                                             DataLoader<Integer, List<Composition>> compositions)
+    {
+        return compositions.load(composer.id(), selection)
+                .thenApply(all -> selectIfPresent(subtype, (Composition comp) -> comp.getClass().getSimpleName())
+                        .andThen(selectIfPresent(key, Composition::key))
+                        .apply(Lists.adapt(all)));
+    }
+
+    /**
+     * Each page is read with its own keyset query. Unlike {@link #compositions} it is not batched across composers:
+     * a cursor belongs to one composer's compositions, so paging is normally done one composer at a time.
+     */
     @SchemaMapping
-    public List<Composition> compositions(Composer composer, @Argument String key, @Argument String subtype)
+    public Connection<Composition> compositionsConnection(Composer composer,
+                                                          @Argument Integer first,
+                                                          @Argument String after,
+                                                          @Argument String key,
+                                                          @Argument String subtype,
+                                                          DataFetchingFieldSelectionSet selection)
     {
-        return selectIfPresent(subtype, (Composition comp) -> comp.getClass().getSimpleName())
-                .andThen(selectIfPresent(key, Composition::key))
-                .apply(Lists.adapt(composer.compositions()));
+        return dao.compositionsPage(composer.id(), key, subtype, Edge.afterId(after), Connection.pageSize(first),
+                                    selection.contains("edges/node/soloInstrument"));
     }
 }
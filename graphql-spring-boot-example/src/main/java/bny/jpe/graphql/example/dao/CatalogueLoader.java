@@ -0,0 +1,175 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import bny.jpe.graphql.kata.CatalogueGenerator;
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Composition;
+import bny.jpe.graphql.kata.domain.Concerto;
+import bny.jpe.graphql.kata.domain.Instrument;
+import bny.jpe.graphql.kata.domain.Location;
+import bny.jpe.graphql.kata.domain.Song;
+import org.eclipse.collections.api.tuple.Pair;
+import org.eclipse.collections.impl.tuple.Tuples;
+
+/**
+ * Bulk-loads generated composers into the database with JDBC batches, bypassing the persistence context.
+ * Composers and compositions are given their ids up front, numbered past the highest in use, so compositions reference
+ * their composers without reading keys back.
+ * Meant for preparing a database before it serves requests: the repository's caches are not told about new rows.
+ */
+@Repository
+public class CatalogueLoader
+{
+    /**
+     * Composers written per transaction.
+     */
+    private static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final TableStatistics statistics;
+
+    public CatalogueLoader(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           TableStatistics statistics)
+    {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.statistics = statistics;
+    }
+
+    /**
+     * Appends {@code count} composers numbered from just past the highest id in use, then moves the id sequences
+     * past them and their compositions as the data scripts do at start-up.
+     *
+     * @return the id of the first composer loaded
+     */
+    public int load(CatalogueGenerator generator, int count)
+    {
+        int firstId = jdbc.queryForObject("SELECT COALESCE(MAX(`id`), 0) + 1 FROM `composer`", Integer.class);
+        int compositionId = jdbc.queryForObject("SELECT COALESCE(MAX(`id`), 0) + 1 FROM `composition`", Integer.class);
+        Map<Location, Integer> locations = new HashMap<>();
+        Map<Instrument, Integer> instruments = new HashMap<>();
+        for (int start = firstId; start < firstId + count; start += BATCH_SIZE)
+        {
+            List<Composer> composers = IntStream.range(start, Math.min(start + BATCH_SIZE, firstId + count))
+                    .mapToObj(generator::composer)
+                    .collect(Collectors.toList());
+            int firstCompositionId = compositionId;
+            compositionId = transactions.execute(
+                    status -> insert(composers, firstCompositionId, locations, instruments));
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("sequences.sql")).execute(jdbc.getDataSource());
+        // The cost analysis narrows filtered estimates by the column selectivities ANALYZE records.
+        jdbc.execute("ANALYZE");
+        statistics.refresh();
+        return firstId;
+    }
+
+    /**
+     * @return the id of the next composition
+     */
+    private int insert(List<Composer> composers,
+                       int firstCompositionId,
+                       Map<Location, Integer> locations,
+                       Map<Instrument, Integer> instruments)
+    {
+        jdbc.batchUpdate("""
+                                 INSERT INTO `composer` (`id`, `first_name`, `last_name`, `date_of_birth`,
+                                                         `location_id`, `primary_instrument_id`, `period`)
+                                 VALUES (?, ?, ?, ?, ?, ?, ?)""",
+                         composers,
+                         composers.size(),
+                         (statement, composer) -> {
+                             statement.setInt(1, composer.id());
+                             statement.setString(2, composer.firstName());
+                             statement.setString(3, composer.lastName());
+                             statement.setObject(4, composer.dateOfBirth());
+                             statement.setInt(5, locations.computeIfAbsent(composer.location(), this::location));
+                             statement.setInt(6, instruments.computeIfAbsent(composer.primaryInstrument(),
+                                                                             this::instrument));
+                             statement.setInt(7, composer.period().ordinal());
+                         });
+        List<Pair<Composer, Composition>> compositions = composers.stream()
+                .flatMap(composer -> composer.compositions().stream().map(c -> Tuples.pair(composer, c)))
+                .collect(Collectors.toList());
+        jdbc.batchUpdate("""
+                                 INSERT INTO `composition` (`id`, `subtype`, `composer_id`, `title`, `key_center`,
+                                                            `solo_instrument_id`, `lyrics`)
+                                 VALUES (?, ?, ?, ?, ?, ?, ?)""",
+                         new BatchPreparedStatementSetter()
+                         {
+                             @Override
+                             public void setValues(PreparedStatement statement, int i) throws SQLException
+                             {
+                                 Composition composition = compositions.get(i).getTwo();
+                                 statement.setInt(1, firstCompositionId + i);
+                                 statement.setString(2, composition.getClass().getSimpleName());
+                                 statement.setInt(3, compositions.get(i).getOne().id());
+                                 statement.setString(4, composition.title());
+                                 statement.setString(5, composition.key());
+                                 statement.setObject(6, composition instanceof Concerto concerto
+                                         ? instruments.computeIfAbsent(concerto.soloInstrument(),
+                                                                       CatalogueLoader.this::instrument)
+                                         : null);
+                                 statement.setString(7, composition instanceof Song song ? song.lyrics() : null);
+                             }
+
+                             @Override
+                             public int getBatchSize()
+                             {
+                                 return compositions.size();
+                             }
+                         });
+        return firstCompositionId + compositions.size();
+    }
+
+    private int location(Location location)
+    {
+        return jdbc.queryForObject(ComposerRepository.UPSERT_LOCATION,
+                                   Integer.class,
+                                   location.city(),
+                                   location.country());
+    }
+
+    private int instrument(Instrument instrument)
+    {
+        return jdbc.queryForObject(ComposerRepository.UPSERT_INSTRUMENT,
+                                   Integer.class,
+                                   instrument.name(),
+                                   instrument.type().ordinal());
+    }
+}
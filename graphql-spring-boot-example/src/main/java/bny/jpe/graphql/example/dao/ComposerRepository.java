@@ -16,12 +16,22 @@
 
 package bny.jpe.graphql.example.dao;
 
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.persistence.TypedQuery;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -29,34 +39,344 @@ import bny.jpe.graphql.example.entities.ComposerEntity;
 import bny.jpe.graphql.example.entities.CompositionEntity;
 import bny.jpe.graphql.example.entities.InstrumentEntity;
 import bny.jpe.graphql.example.entities.LocationEntity;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.tuple.Pair;
+import org.eclipse.collections.impl.tuple.Tuples;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.graphql.data.GraphQlRepository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import bny.jpe.graphql.kata.domain.Composer;
 import bny.jpe.graphql.kata.domain.ComposerInput;
 import bny.jpe.graphql.kata.domain.Composition;
 import bny.jpe.graphql.kata.domain.CompositionInput;
 import bny.jpe.graphql.kata.domain.Concerto;
+import bny.jpe.graphql.kata.domain.Connection;
+import bny.jpe.graphql.kata.domain.Edge;
 import bny.jpe.graphql.kata.domain.Instrument;
 import bny.jpe.graphql.kata.domain.Location;
+import bny.jpe.graphql.kata.domain.Period;
 import bny.jpe.graphql.kata.domain.Song;
+import graphql.schema.DataFetchingFieldSelectionSet;
 
 @GraphQlRepository
 public class ComposerRepository
 {
+    /**
+     * Finds or inserts a location in one statement, returning its id; the parameters are the city and the country.
+     * H2 locks the key, so a concurrent upsert of the same location waits for the first transaction and then
+     * returns the same id instead of violating the unique constraint.
+     */
+    public static final String UPSERT_LOCATION = """
+            SELECT id FROM FINAL TABLE (
+                MERGE INTO location (city, country)
+                KEY (city, country)
+                VALUES (?, ?))""";
+
+    /**
+     * Finds or inserts an instrument in one statement, like {@link #UPSERT_LOCATION}; the parameters are the name
+     * and the ordinal of the type.
+     */
+    public static final String UPSERT_INSTRUMENT = """
+            SELECT id FROM FINAL TABLE (
+                MERGE INTO instrument (name, type)
+                KEY (name, type)
+                VALUES (?, ?))""";
+
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+    static final ImmutableList<String> FETCHABLE = Lists.immutable.of("location", "primaryInstrument");
+
+    /**
+     * The composers() arguments, each with the condition it adds. Conditions on associations are subqueries rather
+     * than joins, so they do not interfere with the joins of the fetch graph and each table keeps its own index.
+     */
+    private static final ImmutableList<Pair<String, String>> FILTERS = Lists.immutable.of(
+            Tuples.pair("period", "c.period = :period"),
+            Tuples.pair("country", "c.location.id IN (SELECT l.id FROM LocationEntity l WHERE l.country = :country)"),
+            Tuples.pair("city", "c.location.id IN (SELECT l.id FROM LocationEntity l WHERE l.city = :city)"),
+            Tuples.pair("instrument",
+                        "c.primaryInstrument.id IN (SELECT i.id FROM InstrumentEntity i WHERE i.name = :instrument)"),
+            Tuples.pair("lastName", "c.lastName = :lastName"));
+
+    /**
+     * Flag of a filter query that seeks past an id and orders by it, above the bits of the present filters.
+     */
+    private static final int PAGED = 1 << FILTERS.size();
+
+    /**
+     * Path of a composer within a connection's selection set.
+     */
+    private static final String NODE = "edges/node/";
+
+    /**
+     * Rows fetched per round trip while streaming.
+     */
+    private static final int STREAM_FETCH_SIZE = 100;
+
+    private final Map<Integer, String> filterQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Write-through caches of the location and instrument dimension tables, keyed by their natural keys.
+     * The cached entities are detached; assigning one to an association only uses its id.
+     */
+    private final Map<Location, LocationEntity> locations = new ConcurrentHashMap<>();
+    private final Map<Instrument, InstrumentEntity> instruments = new ConcurrentHashMap<>();
+
     @PersistenceContext
     private EntityManager manager;
 
-    public List<Composer> allComposers()
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Finds the composers matching every non-null filter, in the order of {@link #FILTERS}, joining only the
+     * associations selected by the query. The JPQL for each combination of filters is built once, so Hibernate
+     * also reuses its query plan.
+     */
+    @Transactional(readOnly = true)
+    public List<Composer> composers(Period period,
+                                    String country,
+                                    String city,
+                                    String instrument,
+                                    String lastName,
+                                    DataFetchingFieldSelectionSet selection)
+    {
+        return composers(period, country, city, instrument, lastName, FETCHABLE.select(selection::contains));
+    }
+
+    /**
+     * {@link #composers} joining the named associations, for callers that have no selection set.
+     */
+    @Transactional(readOnly = true)
+    public List<Composer> composers(Period period,
+                                    String country,
+                                    String city,
+                                    String instrument,
+                                    String lastName,
+                                    ImmutableList<String> associations)
+    {
+        return filteredQuery(new Object[]{period, country, city, instrument, lastName}, 0, associations)
+                .getResultStream().map(ComposerEntity::toRecord).collect(Collectors.toList());
+    }
+
+    /**
+     * Reads one page of {@link #composers} by seeking past the {@code after} id on the primary key, so a page costs
+     * the same wherever it starts. One row more than the page is read, to tell whether a next page exists.
+     */
+    @Transactional(readOnly = true)
+    public Connection<Composer> composersPage(Period period,
+                                              String country,
+                                              String city,
+                                              String instrument,
+                                              String lastName,
+                                              int afterId,
+                                              int first,
+                                              DataFetchingFieldSelectionSet selection)
+    {
+        return composersPage(period,
+                             country,
+                             city,
+                             instrument,
+                             lastName,
+                             afterId,
+                             first,
+                             FETCHABLE.select(a -> selection.contains(NODE + a)));
+    }
+
+    /**
+     * {@link #composersPage} joining the named associations of each composer, for callers that have no selection set.
+     */
+    @Transactional(readOnly = true)
+    public Connection<Composer> composersPage(Period period,
+                                              String country,
+                                              String city,
+                                              String instrument,
+                                              String lastName,
+                                              int afterId,
+                                              int first,
+                                              ImmutableList<String> associations)
+    {
+        List<Edge<Composer>> fetched = filteredQuery(new Object[]{period, country, city, instrument, lastName},
+                                                     PAGED,
+                                                     associations)
+                .setParameter("after", afterId)
+                .setMaxResults(first + 1)
+                .getResultStream()
+                .map(entity -> Edge.of(entity.id, entity.toRecord()))
+                .collect(Collectors.toList());
+        return Connection.of(fetched, first);
+    }
+
+    /**
+     * Streams the composers matching the filters, reading rows only as the subscriber asks for them. The query runs
+     * in a stateless session, which keeps no persistence context, so memory stays flat however many rows match.
+     * The session is closed when the stream completes, fails or is cancelled.
+     */
+    public Flux<Composer> streamComposers(Period period,
+                                          String country,
+                                          String city,
+                                          String instrument,
+                                          String lastName,
+                                          DataFetchingFieldSelectionSet selection)
+    {
+        Object[] values = {period, country, city, instrument, lastName};
+        ImmutableList<String> associations = FETCHABLE.select(selection::contains);
+        return Flux.using(() -> entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession(),
+                          session -> Flux.fromStream(() -> filteredQuery(session::createQuery, values, 0, associations)
+                                  .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                                  .getResultStream()
+                                  .map(ComposerEntity::toRecord)),
+                          StatelessSession::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private TypedQuery<ComposerEntity> filteredQuery(Object[] values, int flags, ImmutableList<String> associations)
+    {
+        return filteredQuery(manager::createQuery, values, flags, associations);
+    }
+
+    private TypedQuery<ComposerEntity> filteredQuery(
+            BiFunction<String, Class<ComposerEntity>, ? extends TypedQuery<ComposerEntity>> createQuery,
+            Object[] values,
+            int flags,
+            ImmutableList<String> associations)
+    {
+        int present = flags;
+        for (int i = 0; i < values.length; i++)
+        {
+            present |= Objects.nonNull(values[i]) ? 1 << i : 0;
+        }
+        String jpql = filterQueries.computeIfAbsent(present, this::filterQuery);
+        TypedQuery<ComposerEntity> query = createQuery.apply(jpql, ComposerEntity.class)
+                .setHint(FETCH_GRAPH, fetchGraph(associations));
+        FILTERS.forEachWithIndex((filter, i) -> Optional.ofNullable(values[i])
+                .ifPresent(value -> query.setParameter(filter.getOne(), value)));
+        return query;
+    }
+
+    private String filterQuery(int present)
     {
-        List<ComposerEntity> resultList = manager.createQuery("""
-                                                                      SELECT DISTINCT c
-                                                                      FROM ComposerEntity c
-                                                                      LEFT JOIN FETCH c.compositions
-                                                                      """,
-                                                              ComposerEntity.class)
+        MutableList<String> conditions = Lists.mutable.empty();
+        FILTERS.forEachWithIndex((filter, i) -> {
+            if ((present & 1 << i) != 0)
+            {
+                conditions.add(filter.getTwo());
+            }
+        });
+        if ((present & PAGED) != 0)
+        {
+            conditions.add("c.id > :after");
+        }
+        String jpql = conditions.isEmpty()
+               ? "SELECT c FROM ComposerEntity c"
+               : conditions.makeString("SELECT c FROM ComposerEntity c WHERE ", " AND ", "");
+        return (present & PAGED) != 0 ? jpql + " ORDER BY c.id" : jpql;
+    }
+
+    /**
+     * Finds one composer by primary key, joining only the associations selected by the query.
+     */
+    @Transactional(readOnly = true)
+    public Composer composer(int id, DataFetchingFieldSelectionSet selection)
+    {
+        return composer(id, FETCHABLE.select(selection::contains));
+    }
+
+    /**
+     * {@link #composer} joining the named associations, for callers that have no selection set.
+     */
+    @Transactional(readOnly = true)
+    public Composer composer(int id, ImmutableList<String> associations)
+    {
+        EntityGraph<ComposerEntity> graph = fetchGraph(associations);
+        ComposerEntity entity = manager.find(ComposerEntity.class, id, Map.of(FETCH_GRAPH, graph));
+        return Optional.ofNullable(entity).map(ComposerEntity::toRecord).orElse(null);
+    }
+
+    /**
+     * Associations are lazy; a fetch graph lists the ones to join, leaving every other association unloaded.
+     */
+    private EntityGraph<ComposerEntity> fetchGraph(ImmutableList<String> associations)
+    {
+        EntityGraph<ComposerEntity> graph = manager.createEntityGraph(ComposerEntity.class);
+        associations.forEach(graph::addAttributeNodes);
+        return graph;
+    }
+
+    /**
+     * Loads the compositions of all the given composers in one query, joining solo instruments only when asked to.
+     * Every requested id is mapped, to an empty list if the composer has no compositions.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, List<Composition>> compositionsByComposer(Set<Integer> composerIds, boolean withSoloInstrument)
+    {
+        EntityGraph<CompositionEntity> graph = manager.createEntityGraph(CompositionEntity.class);
+        if (withSoloInstrument)
+        {
+            graph.addAttributeNodes("soloInstrument");
+        }
+        List<Object[]> rows = manager.createQuery("""
+                                                          SELECT comp.composer.id, comp
+                                                          FROM CompositionEntity comp
+                                                          WHERE comp.composer.id IN :composerIds""",
+                                                  Object[].class)
+                .setParameter("composerIds", composerIds)
+                .setHint(FETCH_GRAPH, graph)
                 .getResultList();
-        return resultList.stream().map(ComposerEntity::toRecord).collect(Collectors.toList());
+        Map<Integer, List<Composition>> compositions = rows.stream()
+                .collect(Collectors.groupingBy(row -> (Integer) row[0],
+                                               Collectors.mapping(row -> ((CompositionEntity) row[1]).toRecord(),
+                                                                  Collectors.toList())));
+        composerIds.forEach(id -> compositions.putIfAbsent(id, List.of()));
+        return compositions;
+    }
+
+    /**
+     * Reads one page of a composer's compositions, seeking past the {@code after} id like {@link #composersPage}.
+     * The key and subtype filters are applied in the query, so a page is always full when enough rows match.
+     */
+    @Transactional(readOnly = true)
+    public Connection<Composition> compositionsPage(int composerId,
+                                                    String key,
+                                                    String subtype,
+                                                    int afterId,
+                                                    int first,
+                                                    boolean withSoloInstrument)
+    {
+        EntityGraph<CompositionEntity> graph = manager.createEntityGraph(CompositionEntity.class);
+        if (withSoloInstrument)
+        {
+            graph.addAttributeNodes("soloInstrument");
+        }
+        List<Edge<Composition>> fetched = manager.createQuery("""
+                                                                      SELECT comp
+                                                                      FROM CompositionEntity comp
+                                                                      WHERE comp.composer.id = :composerId
+                                                                      AND comp.id > :after
+                                                                      AND (:key IS NULL OR comp.keyCenter = :key)
+                                                                      AND (:subtype IS NULL OR comp.subtype = :subtype)
+                                                                      ORDER BY comp.id""",
+                                                              CompositionEntity.class)
+                .setParameter("composerId", composerId)
+                .setParameter("after", afterId)
+                .setParameter("key", key)
+                .setParameter("subtype", subtype)
+                .setHint(FETCH_GRAPH, graph)
+                .setMaxResults(first + 1)
+                .getResultStream()
+                .map(entity -> Edge.of(entity.id, entity.toRecord()))
+                .collect(Collectors.toList());
+        return Connection.of(fetched, first);
     }
 
     @Transactional
@@ -70,16 +390,26 @@ public class ComposerRepository
     @Transactional
     public Composer updateComposer(int id, ComposerInput composer)
     {
-        ComposerEntity entity = initializeEntity(manager.find(ComposerEntity.class, id), composer);
+        ComposerEntity existing = manager.find(ComposerEntity.class, id, Map.of(FETCH_GRAPH, fetchGraph(FETCHABLE)));
+        ComposerEntity entity = initializeEntity(existing, composer);
         manager.persist(entity);
         return entity.toRecord();
     }
 
+    /**
+     * Inserts the compositions as one JDBC batch. The composer is only referenced by id, and every solo instrument
+     * is resolved before the first insert, so no lookup interrupts the batch.
+     */
     @Transactional
     public List<Composition> addCompositions(int composerId, List<CompositionInput> compositions)
     {
+        ComposerEntity composer = manager.getReference(ComposerEntity.class, composerId);
+        Map<Instrument, InstrumentEntity> soloInstruments = resolveInstruments(compositions.stream()
+                .filter(c -> Concerto.class.getSimpleName().equals(c.subtype()))
+                .map(CompositionInput::soloInstrument)
+                .collect(Collectors.toSet()));
         List<CompositionEntity> entities = compositions.stream()
-                .map(c -> insertAsEntity(composerId, c))
+                .map(c -> insertAsEntity(composer, c, soloInstruments))
                 .collect(Collectors.toList());
         return entities.stream().map(CompositionEntity::toRecord).collect(Collectors.toList());
     }
@@ -106,79 +436,122 @@ public class ComposerRepository
         Optional.ofNullable(composer.dateOfBirth()).ifPresent(d -> entity.dateOfBirth = d);
         Optional.ofNullable(composer.period()).ifPresent(p -> entity.period = p);
         Optional.ofNullable(composer.location())
-                .ifPresent(l -> entity.location = existingOrNew(l, this::findLocation, this::createLocation));
+                .ifPresent(l -> entity.location = existingOrNew(l, locations, this::upsertLocation));
         Optional.ofNullable(composer.primaryInstrument())
-                .ifPresent(i -> entity.primaryInstrument = existingOrNew(i,
-                                                                         this::findInstrument,
-                                                                         this::createInstrument));
+                .ifPresent(i -> entity.primaryInstrument = existingOrNew(i, instruments, this::upsertInstrument));
         entity.compositions = Collections.emptyList();
         return entity;
     }
 
-    private <T, R> R existingOrNew(T entity, Function<T, R> find, Function<T, R> create)
+    /**
+     * Loads every location and instrument into the dimension caches once the data is in place.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmDimensionCaches()
     {
-        try
+        manager.createQuery("SELECT loc FROM LocationEntity loc", LocationEntity.class)
+                .getResultStream()
+                .forEach(loc -> locations.putIfAbsent(loc.toRecord(), loc));
+        manager.createQuery("SELECT inst FROM InstrumentEntity inst", InstrumentEntity.class)
+                .getResultStream()
+                .forEach(inst -> instruments.putIfAbsent(inst.toRecord(), inst));
+    }
+
+    /**
+     * Returns the cached dimension row for {@code key}, upserting it on a miss.
+     * The row is cached once the transaction commits, since the upsert may have inserted it.
+     */
+    private <K, E> E existingOrNew(K key, Map<K, E> cache, Function<K, E> upsert)
+    {
+        E cached = cache.get(key);
+        if (Objects.nonNull(cached))
         {
-            return find.apply(entity);
+            return cached;
         }
-        catch (NoResultException e)
+        E entity = upsert.apply(key);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
         {
-            return create.apply(entity);
-        }
+            @Override
+            public void afterCommit()
+            {
+                cache.putIfAbsent(key, entity);
+            }
+        });
+        return entity;
     }
 
-    private LocationEntity findLocation(Location location)
+    /**
+     * Finds or inserts the location with {@link #UPSERT_LOCATION}.
+     */
+    private LocationEntity upsertLocation(Location location)
     {
-        return manager.createQuery("""
-                                           SELECT DISTINCT loc
-                                           FROM LocationEntity loc
-                                           WHERE loc.city = :city AND loc.country = :country""",
-                                   LocationEntity.class)
-                .setParameter("city", location.city())
-                .setParameter("country", location.country())
+        Object id = manager.createNativeQuery(UPSERT_LOCATION)
+                .setParameter(1, location.city())
+                .setParameter(2, location.country())
                 .getSingleResult();
+        LocationEntity entity = new LocationEntity();
+        entity.id = ((Number) id).intValue();
+        entity.city = location.city();
+        entity.country = location.country();
+        return entity;
     }
 
-    private InstrumentEntity findInstrument(Instrument instrument)
+    /**
+     * Finds or inserts the instrument with {@link #UPSERT_INSTRUMENT}.
+     */
+    private InstrumentEntity upsertInstrument(Instrument instrument)
     {
-        return manager.createQuery("""
-                                           SELECT DISTINCT inst
-                                           FROM InstrumentEntity inst
-                                           WHERE inst.name = :name AND inst.type = :type""",
-                                   InstrumentEntity.class)
-                .setParameter("name", instrument.name())
-                .setParameter("type", instrument.type())
+        Object id = manager.createNativeQuery(UPSERT_INSTRUMENT)
+                .setParameter(1, instrument.name())
+                .setParameter(2, instrument.type().ordinal())
                 .getSingleResult();
+        InstrumentEntity entity = new InstrumentEntity();
+        entity.id = ((Number) id).intValue();
+        entity.name = instrument.name();
+        entity.type = instrument.type();
+        return entity;
     }
 
-    private LocationEntity createLocation(Location location)
-    {
-        LocationEntity locEnt = new LocationEntity();
-        locEnt.city = location.city();
-        locEnt.country = location.country();
-        manager.persist(locEnt);
-        return locEnt;
-    }
-
-    private InstrumentEntity createInstrument(Instrument instrument)
+    /**
+     * Resolves all the instruments at once: from the cache, then with one query for the misses,
+     * and upserting only those that do not exist yet.
+     */
+    private Map<Instrument, InstrumentEntity> resolveInstruments(Set<Instrument> wanted)
     {
-        InstrumentEntity instrumentEntity = new InstrumentEntity();
-        instrumentEntity.name = instrument.name();
-        instrumentEntity.type = instrument.type();
-        manager.persist(instrumentEntity);
-        return instrumentEntity;
+        Map<Instrument, InstrumentEntity> resolved = new HashMap<>();
+        Set<Instrument> misses = new HashSet<>();
+        wanted.forEach(i -> Optional.ofNullable(instruments.get(i))
+                .ifPresentOrElse(cached -> resolved.put(i, cached), () -> misses.add(i)));
+        if (!misses.isEmpty())
+        {
+            manager.createQuery("SELECT inst FROM InstrumentEntity inst WHERE inst.name IN :names",
+                                InstrumentEntity.class)
+                    .setParameter("names", misses.stream().map(Instrument::name).collect(Collectors.toSet()))
+                    .getResultStream()
+                    .filter(inst -> misses.contains(inst.toRecord()))
+                    .forEach(inst -> {
+                        resolved.put(inst.toRecord(), inst);
+                        instruments.putIfAbsent(inst.toRecord(), inst);
+                    });
+            misses.removeAll(resolved.keySet());
+            misses.forEach(i -> resolved.put(i, existingOrNew(i, instruments, this::upsertInstrument)));
+        }
+        return resolved;
     }
 
-    private CompositionEntity insertAsEntity(int composerId, CompositionInput comp)
+    private CompositionEntity insertAsEntity(ComposerEntity composer,
+                                             CompositionInput comp,
+                                             Map<Instrument, InstrumentEntity> soloInstruments)
     {
         CompositionEntity entity = new CompositionEntity();
-        entity.composer = manager.find(ComposerEntity.class, composerId);
-        entity.subtype = comp.getClass().getSimpleName();
+        entity.composer = composer;
+        entity.subtype = comp.subtype();
         entity.title = comp.title();
         entity.keyCenter = comp.key();
 
         entity.soloInstrument = Concerto.class.getSimpleName().equals(comp.subtype())
-                ? existingOrNew(comp.soloInstrument(), this::findInstrument, this::createInstrument)
+                ? soloInstruments.get(comp.soloInstrument())
                 : null;
         entity.lyrics = Song.class.getSimpleName().equals(comp.subtype()) ? comp.lyrics() : null;
         manager.persist(entity);
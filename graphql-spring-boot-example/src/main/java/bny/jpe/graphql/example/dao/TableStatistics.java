@@ -0,0 +1,157 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.example.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Estimates list sizes for the query cost analysis from the row counts and column selectivities H2 keeps for every
+ * table. They are read at most once per refresh interval, so estimating never costs a query per operation.
+ */
+@Repository
+public class TableStatistics
+{
+    /**
+     * The column each filter argument of the composer queries compares.
+     */
+    private static final Map<String, Column> FILTERS = Map.of("period", new Column("COMPOSER", "PERIOD"),
+                                                              "lastName", new Column("COMPOSER", "LAST_NAME"),
+                                                              "city", new Column("LOCATION", "CITY"),
+                                                              "country", new Column("LOCATION", "COUNTRY"),
+                                                              "instrument", new Column("INSTRUMENT", "NAME"));
+
+    private final Duration refresh;
+    private volatile Counts counts;
+
+    @PersistenceContext
+    private EntityManager manager;
+
+    public TableStatistics(@Value("${composers.graphql.cost.statistics-refresh}") Duration refresh)
+    {
+        this.refresh = refresh;
+    }
+
+    /**
+     * The size named by a {@code cardinality} of the {@code @cost} directive, narrowed by the most selective of the
+     * filters in {@code arguments}.
+     */
+    public long estimate(String cardinality, Map<String, Object> arguments)
+    {
+        Counts current = counts();
+        long composers = current.rows("COMPOSER");
+        return switch (cardinality)
+                {
+                    case "composers" -> (long) Math.ceil(composers * FILTERS.entrySet().stream()
+                            .filter(filter -> Objects.nonNull(arguments.get(filter.getKey()))
+                                    && !arguments.get(filter.getKey()).toString().isBlank())
+                            .mapToDouble(filter -> current.share(filter.getValue()))
+                            .min()
+                            .orElse(1));
+                    // Rounded up, so a catalogue with any compositions never estimates zero.
+                    case "compositionsPerComposer" -> composers == 0
+                            ? 0
+                            : (current.rows("COMPOSITION") + composers - 1) / composers;
+                    default -> throw new IllegalArgumentException("Unknown cardinality: " + cardinality);
+                };
+    }
+
+    /**
+     * Reads the counts once the data is in place, so the first operation does not wait for them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh()
+    {
+        counts = new Counts(readRowCounts(), readSelectivities(), System.nanoTime());
+    }
+
+    private Counts counts()
+    {
+        Counts current = counts;
+        if (Objects.isNull(current) || System.nanoTime() - current.readAt() > refresh.toNanos())
+        {
+            refresh();
+            current = counts;
+        }
+        return current;
+    }
+
+    /**
+     * Runs outside any transaction; a concurrent refresh only reads the same counts twice.
+     */
+    private Map<String, Long> readRowCounts()
+    {
+        List<Object[]> rows = manager.createNativeQuery("""
+                                                                SELECT TABLE_NAME, ROW_COUNT_ESTIMATE
+                                                                FROM INFORMATION_SCHEMA.TABLES
+                                                                WHERE TABLE_SCHEMA = 'PUBLIC'""")
+                .getResultList();
+        return rows.stream()
+                .filter(row -> Objects.nonNull(row[1]))
+                .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * The percentage of distinct values of every column, as of the last {@code ANALYZE}.
+     */
+    private Map<Column, Integer> readSelectivities()
+    {
+        List<Object[]> rows = manager.createNativeQuery("""
+                                                                SELECT TABLE_NAME, COLUMN_NAME, SELECTIVITY
+                                                                FROM INFORMATION_SCHEMA.COLUMNS
+                                                                WHERE TABLE_SCHEMA = 'PUBLIC'""")
+                .getResultList();
+        return rows.stream()
+                .filter(row -> Objects.nonNull(row[2]))
+                .collect(Collectors.toMap(row -> new Column((String) row[0], (String) row[1]),
+                                          row -> ((Number) row[2]).intValue()));
+    }
+
+    private record Column(String table, String name)
+    {
+    }
+
+    private record Counts(Map<String, Long> rows, Map<Column, Integer> selectivities, long readAt)
+    {
+        long rows(String table)
+        {
+            return rows.getOrDefault(table, 0L);
+        }
+
+        /**
+         * The share of a table's rows holding any one value of the column: one over its number of distinct values.
+         * H2 keeps selectivities of at least 1, so a column with fewer distinct values is taken not to narrow.
+         */
+        double share(Column column)
+        {
+            int selectivity = selectivities.getOrDefault(column, 1);
+            long rows = rows(column.table());
+            return selectivity <= 1 || rows == 0 ? 1 : Math.min(1, 100.0 / (selectivity * rows));
+        }
+    }
+}
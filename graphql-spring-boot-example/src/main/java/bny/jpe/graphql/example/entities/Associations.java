@@ -0,0 +1,39 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.entities;
+
+import java.util.Optional;
+
+import org.hibernate.Hibernate;
+
+final class Associations
+{
+    private Associations()
+    {
+    }
+
+    /**
+     * Associations left out of a fetch graph are proxies; they are only read when already loaded,
+     * and through the underlying entity, since the fields of a proxy are never populated.
+     */
+    static <T> Optional<T> ifLoaded(T association, Class<T> type)
+    {
+        return Optional.ofNullable(association)
+                .filter(Hibernate::isInitialized)
+                .map(a -> type.cast(Hibernate.unproxy(a)));
+    }
+}
@@ -23,13 +23,17 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import org.hibernate.Hibernate;
+
 import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Composition;
 import bny.jpe.graphql.kata.domain.Period;
 
 @Entity
@@ -37,17 +41,18 @@ import bny.jpe.graphql.kata.domain.Period;
 public class ComposerEntity
 {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "composer_seq")
+    @SequenceGenerator(name = "composer_seq", sequenceName = "composer_seq", allocationSize = 50)
     public int id;
     public String firstName;
     public String lastName;
     public LocalDate dateOfBirth;
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     public LocationEntity location;
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     public InstrumentEntity primaryInstrument;
     public Period period;
-    @OneToMany(mappedBy = "composer", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "composer")
     public List<CompositionEntity> compositions;
 
     public Composer toRecord()
@@ -56,9 +61,23 @@ public class ComposerEntity
                             this.firstName,
                             this.lastName,
                             this.dateOfBirth,
-                            Optional.ofNullable(this.location).map(LocationEntity::toRecord).orElse(null),
-                            Optional.ofNullable(this.primaryInstrument).map(InstrumentEntity::toRecord).orElse(null),
+                            Associations.ifLoaded(this.location, LocationEntity.class)
+                                    .map(LocationEntity::toRecord)
+                                    .orElse(null),
+                            Associations.ifLoaded(this.primaryInstrument, InstrumentEntity.class)
+                                    .map(InstrumentEntity::toRecord)
+                                    .orElse(null),
                             this.period,
-                            this.compositions.stream().map(CompositionEntity::toRecord).collect(Collectors.toList()));
+                            compositionsIfLoaded());
+    }
+
+    /**
+     * Compositions are loaded on demand by the {@code compositions} field, so they are only copied when already loaded.
+     */
+    private List<Composition> compositionsIfLoaded()
+    {
+        return Objects.nonNull(this.compositions) && Hibernate.isInitialized(this.compositions)
+               ? this.compositions.stream().map(CompositionEntity::toRecord).collect(Collectors.toList())
+               : null;
     }
 }
@@ -17,10 +17,14 @@
 package bny.jpe.graphql.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import bny.jpe.graphql.kata.domain.Composition;
@@ -33,14 +37,16 @@ import bny.jpe.graphql.kata.domain.Song;
 public class CompositionEntity
 {
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "composition_seq")
+    @SequenceGenerator(name = "composition_seq", sequenceName = "composition_seq", allocationSize = 50)
     public int id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "composer_id")
     public ComposerEntity composer;
     public String subtype;
     public String title;
     public String keyCenter;
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     public InstrumentEntity soloInstrument;
     public String lyrics;
 
@@ -50,7 +56,9 @@ public class CompositionEntity
                 {
                     case "Concerto" -> new Concerto(this.title,
                                                     this.keyCenter,
-                                                    this.soloInstrument.toRecord());
+                                                    Associations.ifLoaded(this.soloInstrument, InstrumentEntity.class)
+                                                            .map(InstrumentEntity::toRecord)
+                                                            .orElse(null));
                     case "Song" -> new Song(this.title, this.keyCenter, this.lyrics);
                     default -> new Piece(this.title, this.keyCenter);
                 };
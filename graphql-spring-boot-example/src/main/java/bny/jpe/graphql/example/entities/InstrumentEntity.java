@@ -17,6 +17,8 @@
 package bny.jpe.graphql.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
@@ -28,6 +30,7 @@ import bny.jpe.graphql.kata.domain.InstrumentType;
 public class InstrumentEntity
 {
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     public int id;
     public String name;
     public InstrumentType type;
@@ -17,6 +17,8 @@
 package bny.jpe.graphql.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
@@ -27,6 +29,7 @@ import bny.jpe.graphql.kata.domain.Location;
 public class LocationEntity
 {
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     public int id;
     public String city;
     public String country;
@@ -0,0 +1,119 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package bny.jpe.graphql.example.events;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import bny.jpe.graphql.kata.domain.Composer;
+
+/**
+ * Multicasts composer changes to the subscriptions of this process.
+ * <p>
+ * Publishing never waits for subscribers and never fails. Every subscriber reads through its own buffer of
+ * {@code bufferSize} events; once a slow subscriber's buffer is full its oldest event is dropped, so it only misses
+ * events and never holds up the mutations publishing them or the other subscribers. Publishers to the same sink take
+ * turns, which only lasts as long as handing the event to each buffer.
+ */
+public class ComposerEvents
+{
+    private final Sinks.Many<Composer> composers = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<Integer> compositions = Sinks.many().multicast().directBestEffort();
+    private final int bufferSize;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ComposerEvents(int bufferSize)
+    {
+        if (bufferSize < 1)
+        {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Publishes a created or updated composer. Call it once the change is committed.
+     */
+    public void composerChanged(Composer composer)
+    {
+        publish(composers, composer);
+    }
+
+    /**
+     * Publishes that the compositions of a composer changed. Call it once the change is committed.
+     */
+    public void compositionsChanged(int composerId)
+    {
+        publish(compositions, composerId);
+    }
+
+    public Flux<Composer> composerChanges()
+    {
+        return buffered(composers.asFlux());
+    }
+
+    /**
+     * The ids of changed composers; each event is only the id, so subscribers read the compositions as committed.
+     */
+    public Flux<Integer> compositionsChanges(int composerId)
+    {
+        return buffered(compositions.asFlux().filter(id -> id == composerId));
+    }
+
+    /**
+     * Sinks only accept one emission at a time, so emissions are serialized here rather than retried. The change
+     * is already committed when it is published, so an event that cannot be delivered is counted, not thrown.
+     */
+    private <T> void publish(Sinks.Many<T> sink, T event)
+    {
+        published.increment();
+        Sinks.EmitResult result;
+        synchronized (sink)
+        {
+            result = sink.tryEmitNext(event);
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER)
+        {
+            dropped.increment();
+        }
+    }
+
+    private <T> Flux<T> buffered(Flux<T> events)
+    {
+        return events.onBackpressureBuffer(bufferSize, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    public int subscribers()
+    {
+        return composers.currentSubscriberCount() + compositions.currentSubscriberCount();
+    }
+
+    public long published()
+    {
+        return published.sum();
+    }
+
+    public long dropped()
+    {
+        return dropped.sum();
+    }
+}
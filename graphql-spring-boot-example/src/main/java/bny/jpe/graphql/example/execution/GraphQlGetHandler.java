@@ -0,0 +1,117 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.execution;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.server.support.SerializableGraphQlRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serves GraphQL over HTTP GET, with {@code query}, {@code operationName}, {@code variables} and {@code extensions}
+ * as URL parameters, the last two JSON encoded. Together with persisted queries this keeps requests small enough
+ * for a URL, so that browsers and proxies can cache them.
+ * <p>
+ * GET requests are flagged in the GraphQL context under {@link #GET_REQUEST}; {@link PersistedQueryDocumentProvider}
+ * refuses to run anything but queries for them, as GET must be safe to repeat.
+ */
+public class GraphQlGetHandler
+{
+    public static final String GET_REQUEST = GraphQlGetHandler.class.getName() + ".GET";
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>()
+    {
+    };
+
+    private final WebGraphQlHandler graphQlHandler;
+    private final ObjectMapper objectMapper;
+    private final CacheControl cacheControl;
+
+    public GraphQlGetHandler(WebGraphQlHandler graphQlHandler, ObjectMapper objectMapper, Duration maxAge)
+    {
+        this.graphQlHandler = graphQlHandler;
+        this.objectMapper = objectMapper;
+        this.cacheControl = maxAge.isZero() || maxAge.isNegative()
+                            ? CacheControl.noCache()
+                            : CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    public ServerResponse handleRequest(ServerRequest request)
+    {
+        SerializableGraphQlRequest body = new SerializableGraphQlRequest();
+        try
+        {
+            request.param("query").ifPresent(body::setQuery);
+            request.param("operationName").ifPresent(body::setOperationName);
+            body.setVariables(readJson(request, "variables"));
+            body.setExtensions(readJson(request, "extensions"));
+        }
+        catch (JsonProcessingException e)
+        {
+            return ServerResponse.badRequest().build();
+        }
+
+        WebGraphQlRequest graphQlRequest = new WebGraphQlRequest(
+                request.uri(), request.headers().asHttpHeaders(), cookies(request),
+                request.remoteAddress().orElse(null), request.attributes(), body,
+                request.servletRequest().getRequestId(), request.servletRequest().getLocale());
+        graphQlRequest.configureExecutionInput((input, builder) ->
+                builder.graphQLContext(Map.of(GET_REQUEST, true)).build());
+
+        return ServerResponse.async(graphQlHandler.handleRequest(graphQlRequest)
+                                            .map(this::toResponse)
+                                            .toFuture());
+    }
+
+    private ServerResponse toResponse(WebGraphQlResponse response)
+    {
+        return ServerResponse.ok()
+                .headers(headers -> headers.putAll(response.getResponseHeaders()))
+                .cacheControl(response.getErrors().isEmpty() ? cacheControl : CacheControl.noStore())
+                .contentType(MediaType.APPLICATION_GRAPHQL_RESPONSE)
+                .body(response.toMap());
+    }
+
+    private Map<String, Object> readJson(ServerRequest request, String name) throws JsonProcessingException
+    {
+        String json = request.param(name).orElse(null);
+        return Objects.isNull(json) || json.isBlank() ? Map.of() : objectMapper.readValue(json, JSON_OBJECT);
+    }
+
+    private static MultiValueMap<String, HttpCookie> cookies(ServerRequest request)
+    {
+        MultiValueMap<String, HttpCookie> cookies = new LinkedMultiValueMap<>();
+        request.cookies().forEach((name, values) -> values.forEach(
+                cookie -> cookies.add(name, new HttpCookie(name, cookie.getValue()))));
+        return cookies;
+    }
+}
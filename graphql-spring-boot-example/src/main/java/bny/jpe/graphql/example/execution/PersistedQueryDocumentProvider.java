@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.execution;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import graphql.ErrorType;
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.language.OperationDefinition;
+
+/**
+ * Resolves operations carrying a {@code persistedQuery} extension through the persisted query cache,
+ * and every other operation through the regular document cache.
+ * Operations received over {@link GraphQlGetHandler GET} are refused unless they are queries.
+ */
+public class PersistedQueryDocumentProvider
+        implements PreparsedDocumentProvider
+{
+    public static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+
+    private final PreparsedDocumentProvider persistedQueries;
+    private final PreparsedDocumentProvider documents;
+
+    public PersistedQueryDocumentProvider(PersistedQueryCache persistedQueries, PreparsedDocumentProvider documents)
+    {
+        this.persistedQueries = new ApolloPersistedQuerySupport(persistedQueries);
+        this.documents = documents;
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate)
+    {
+        return checkMethod(executionInput, select(executionInput).getDocument(executionInput, parseAndValidate));
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(
+            ExecutionInput executionInput,
+            Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate)
+    {
+        return select(executionInput).getDocumentAsync(executionInput, parseAndValidate)
+                .thenApply(entry -> checkMethod(executionInput, entry));
+    }
+
+    private PreparsedDocumentProvider select(ExecutionInput executionInput)
+    {
+        return executionInput.getExtensions().containsKey(PERSISTED_QUERY_EXTENSION) ? persistedQueries : documents;
+    }
+
+    private static PreparsedDocumentEntry checkMethod(ExecutionInput executionInput, PreparsedDocumentEntry entry)
+    {
+        if (entry.hasErrors() || !executionInput.getGraphQLContext().getOrDefault(GraphQlGetHandler.GET_REQUEST, false))
+        {
+            return entry;
+        }
+        String operationName = executionInput.getOperationName();
+        boolean queriesOnly = entry.getDocument().getDefinitionsOfType(OperationDefinition.class).stream()
+                .filter(operation -> Objects.isNull(operationName) || operationName.equals(operation.getName()))
+                .allMatch(operation -> operation.getOperation() == OperationDefinition.Operation.QUERY);
+        return queriesOnly
+               ? entry
+               : new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                                                    .message("Only queries can be sent with GET")
+                                                    .errorType(ErrorType.OperationNotSupported)
+                                                    .build());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.execution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.io.Resource;
+
+import bny.jpe.graphql.kata.LruCache;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+
+/**
+ * Registry of automatic persisted queries, keyed by the SHA-256 hash of the query text.
+ * <p>
+ * A hash is registered the first time a client sends it together with its query text, and the parsed document is
+ * kept in a bounded LRU. Queries preloaded from resources are always known; their documents are parsed on first use
+ * and may be evicted like any other, but the text stays available to parse them again.
+ */
+public class PersistedQueryRegistry
+        implements PersistedQueryCache
+{
+    private final LruCache<Object, PreparsedDocumentEntry> documents;
+    private final Map<Object, String> preloaded = new ConcurrentHashMap<>();
+
+    public PersistedQueryRegistry(int maximumSize)
+    {
+        this.documents = new LruCache<>(maximumSize);
+    }
+
+    public static String sha256(String query)
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void preload(Resource... resources)
+    {
+        for (Resource resource : resources)
+        {
+            try
+            {
+                String query = resource.getContentAsString(StandardCharsets.UTF_8);
+                preloaded.put(sha256(query), query);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot preload persisted query " + resource, e);
+            }
+        }
+    }
+
+    @Override
+    public PreparsedDocumentEntry getPersistedQueryDocument(Object persistedQueryId,
+                                                            ExecutionInput executionInput,
+                                                            PersistedQueryCacheMiss onCacheMiss)
+            throws PersistedQueryNotFound
+    {
+        return documents.computeIfAbsent(persistedQueryId, id -> {
+            String query = preloaded.getOrDefault(id, executionInput.getQuery());
+            if (Objects.isNull(query) || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query))
+            {
+                throw new PersistedQueryNotFound(id);
+            }
+            return onCacheMiss.apply(query);
+        });
+    }
+
+    public int size()
+    {
+        return documents.size();
+    }
+
+    /**
+     * The number of queries preloaded from resources.
+     */
+    public int preloaded()
+    {
+        return preloaded.size();
+    }
+
+    public long hits()
+    {
+        return documents.hits();
+    }
+
+    public long misses()
+    {
+        return documents.misses();
+    }
+}
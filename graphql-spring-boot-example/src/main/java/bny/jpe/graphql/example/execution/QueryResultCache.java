@@ -0,0 +1,258 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.execution;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import reactor.core.publisher.Mono;
+
+import bny.jpe.graphql.kata.LruCache;
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caches the results of query operations, keyed by the normalized document, operation name and variables.
+ * <p>
+ * While a query executes, data fetchers {@link #tag(GraphQLContext, String...) tag} its result with what it was
+ * built from, and mutations {@link #invalidate(String...) invalidate} the tags they change. Invalidation is by
+ * epoch: every invalidation advances a global epoch and stamps the tags with it, and an entry is only served while
+ * none of its tags was invalidated after its query started. A query that raced with a mutation is therefore never
+ * served, even if it is stored after the invalidation. Only the most recently invalidated tags are remembered; when
+ * one is forgotten, every entry whose query started before its invalidation is treated as stale.
+ * <p>
+ * Only results without errors are cached. Requests sending nothing but a persisted query hash are not cached,
+ * since their text is only known once the engine has resolved it. The counters are published as the standard
+ * {@code cache.*} meters, tagged {@code cache=}{@value #NAME}.
+ */
+public class QueryResultCache
+        implements WebGraphQlInterceptor, MeterBinder
+{
+    public static final String NAME = "graphql.results";
+
+    private static final String TAGS = QueryResultCache.class.getName() + ".TAGS";
+
+    private final LruCache<Key, Entry> results;
+    private final LruCache<Operation, Optional<String>> normalizedQueries;
+    private final AtomicLong epoch = new AtomicLong();
+    private final Map<String, Long> invalidatedAt;
+    /**
+     * The latest invalidation of a forgotten tag; guarded by {@link #invalidatedAt}.
+     */
+    private long forgottenAt;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maximumTags how many invalidated tags to remember
+     */
+    public QueryResultCache(int maximumSize, int maximumTags)
+    {
+        this.results = new LruCache<>(maximumSize);
+        this.normalizedQueries = new LruCache<>(maximumSize);
+        this.invalidatedAt = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+            {
+                boolean full = size() > maximumTags;
+                if (full)
+                {
+                    forgottenAt = Math.max(forgottenAt, eldest.getValue());
+                }
+                return full;
+            }
+        };
+    }
+
+    /**
+     * Tags the result of the operation executing with {@code context}; does nothing outside a cached query.
+     */
+    public static void tag(GraphQLContext context, String... tags)
+    {
+        Set<String> collected = context.get(TAGS);
+        if (Objects.nonNull(collected))
+        {
+            Collections.addAll(collected, tags);
+        }
+    }
+
+    public void invalidate(String... tags)
+    {
+        synchronized (invalidatedAt)
+        {
+            long invalidation = epoch.incrementAndGet();
+            for (String tag : tags)
+            {
+                invalidatedAt.put(tag, invalidation);
+            }
+        }
+        invalidations.add(tags.length);
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain)
+    {
+        Optional<String> normalized = normalizedQueries.computeIfAbsent(
+                new Operation(request.getDocument(), request.getOperationName()), QueryResultCache::normalize);
+        if (normalized.isEmpty())
+        {
+            return chain.next(request);
+        }
+
+        Key key = new Key(normalized.get(), request.getOperationName(), request.getVariables());
+        Entry cached = results.get(key);
+        if (Objects.nonNull(cached) && isCurrent(cached))
+        {
+            hits.increment();
+            return Mono.just(new WebGraphQlResponse(
+                    new DefaultExecutionGraphQlResponse(request.toExecutionInput(), cached.result())));
+        }
+        misses.increment();
+
+        long started = epoch.get();
+        Set<String> tags = ConcurrentHashMap.newKeySet();
+        request.configureExecutionInput((input, builder) -> builder.graphQLContext(Map.of(TAGS, tags)).build());
+        return chain.next(request).doOnNext(response -> {
+            if (response.isValid() && response.getErrors().isEmpty())
+            {
+                results.put(key, new Entry(response.getExecutionResult(), Set.copyOf(tags), started));
+            }
+        });
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    public long evictions()
+    {
+        return results.evictions();
+    }
+
+    public long invalidations()
+    {
+        return invalidations.sum();
+    }
+
+    public int size()
+    {
+        return results.size();
+    }
+
+    public int invalidatedTags()
+    {
+        synchronized (invalidatedAt)
+        {
+            return invalidatedAt.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        Tags cache = Tags.of("cache", NAME);
+        FunctionCounter.builder("cache.gets", this, QueryResultCache::hits)
+                .tags(cache).tag("result", "hit")
+                .description("Queries answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, QueryResultCache::misses)
+                .tags(cache).tag("result", "miss")
+                .description("Cacheable queries executed")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, QueryResultCache::evictions)
+                .tags(cache)
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", this, QueryResultCache::invalidations)
+                .tags(cache)
+                .description("Tags invalidated by mutations")
+                .register(registry);
+        Gauge.builder("cache.size", this, QueryResultCache::size)
+                .tags(cache)
+                .register(registry);
+    }
+
+    private boolean isCurrent(Entry entry)
+    {
+        synchronized (invalidatedAt)
+        {
+            return forgottenAt <= entry.started()
+                    && entry.tags().stream().allMatch(tag -> invalidatedAt.getOrDefault(tag, 0L) <= entry.started());
+        }
+    }
+
+    /**
+     * The compact printed form of the document if the requested operation is a query, so that formatting does
+     * not split entries; empty for anything that must not be cached, including documents that do not parse.
+     */
+    private static Optional<String> normalize(Operation requested)
+    {
+        try
+        {
+            Document document = Parser.parse(requested.document());
+            String operationName = requested.operationName();
+            boolean queriesOnly = document.getDefinitionsOfType(OperationDefinition.class).stream()
+                    .filter(operation -> Objects.isNull(operationName) || operationName.equals(operation.getName()))
+                    .allMatch(operation -> operation.getOperation() == OperationDefinition.Operation.QUERY);
+            return queriesOnly ? Optional.of(AstPrinter.printAstCompact(document)) : Optional.empty();
+        }
+        catch (InvalidSyntaxException e)
+        {
+            return Optional.empty();
+        }
+    }
+
+    private record Operation(String document, String operationName)
+    {
+    }
+
+    private record Key(String document, String operationName, Map<String, Object> variables)
+    {
+    }
+
+    private record Entry(ExecutionResult result, Set<String> tags, long started)
+    {
+    }
+}
@@ -14,9 +14,16 @@
  *   limitations under the License.
  */
 
+/*
+ * Composer and composition ids are only drawn from these sequences, which Hibernate allocates in pooled blocks of 50.
+ */
+CREATE SEQUENCE IF NOT EXISTS composer_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS composition_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS `composer`
 (
-    `id`                    INTEGER PRIMARY KEY AUTO_INCREMENT,
+    `id`                    INTEGER DEFAULT NEXT VALUE FOR composer_seq PRIMARY KEY,
     `first_name`            VARCHAR(250),
     `last_name`             VARCHAR(250) NOT NULL,
     `date_of_birth`         DATE         NOT NULL,
@@ -41,7 +48,7 @@ CREATE TABLE IF NOT EXISTS `location`
 
 CREATE TABLE IF NOT EXISTS `composition`
 (
-    `id`                 INTEGER PRIMARY KEY AUTO_INCREMENT,
+    `id`                 INTEGER DEFAULT NEXT VALUE FOR composition_seq PRIMARY KEY,
     `subtype`            VARCHAR(250) NOT NULL,
     `composer_id`        INTEGER      NOT NULL,
     `title`              VARCHAR(250),
@@ -72,4 +79,15 @@ ALTER TABLE `location`
     ADD CONSTRAINT location UNIQUE (`city`, `country`);
 
 ALTER TABLE `instrument`
-    ADD CONSTRAINT instrument UNIQUE (`name`, `type`);
\ No newline at end of file
+    ADD CONSTRAINT instrument UNIQUE (`name`, `type`);
+CREATE INDEX IF NOT EXISTS composer_period ON `composer` (`period`);
+
+CREATE INDEX IF NOT EXISTS composer_last_name ON `composer` (`last_name`);
+
+CREATE INDEX IF NOT EXISTS location_country ON `location` (`country`);
+
+CREATE INDEX IF NOT EXISTS composition_composer_id ON `composition` (`composer_id`);
+
+CREATE INDEX IF NOT EXISTS composition_subtype ON `composition` (`subtype`);
+
+CREATE INDEX IF NOT EXISTS composition_key_center ON `composition` (`key_center`);
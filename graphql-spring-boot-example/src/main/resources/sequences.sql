@@ -0,0 +1,24 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+/*
+ * Composer and composition ids come from pooled sequences: Hibernate reads one value per block of 50 and hands out
+ * the 50 ids ending at that value. The fixtures and the bulk-loaded catalogue are inserted with their ids, so once
+ * they are loaded each sequence restarts 50 above the highest id in use, making the first block start right after it.
+ */
+ALTER SEQUENCE composer_seq RESTART WITH (SELECT COALESCE(MAX(`id`), 0) + 50 FROM `composer`);
+
+ALTER SEQUENCE composition_seq RESTART WITH (SELECT COALESCE(MAX(`id`), 0) + 50 FROM `composition`);
@@ -0,0 +1,68 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureHttpGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import bny.jpe.graphql.kata.CatalogueGenerator;
+
+/**
+ * Checks the cost analysis against a catalogue past the budget: filters narrow the estimate by the column
+ * selectivities, so only operations that would really read most of it are rejected.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = {
+                        "spring.datasource.url=jdbc:h2:mem:cost",
+                        "composers.graphql.catalogue.size=20000"})
+@AutoConfigureHttpGraphQlTester
+public class CostEstimateTest
+{
+    @Autowired
+    WebTestClient client;
+
+    @Test
+    public void selectiveFilterWithinBudget()
+    {
+        // The generated composers follow the 8 of data.sql.
+        String lastName = new CatalogueGenerator(1).composer(1000).lastName();
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", "query ($lastName: String) { composers(lastName: $lastName) { id } }",
+                                  "variables", Map.of("lastName", lastName)))
+                .exchange()
+                .expectBody()
+                .jsonPath("$.errors").doesNotExist()
+                .jsonPath("$.data.composers[0].id").isEqualTo("1000")
+                .jsonPath("$.extensions.cost.overBudget").isEqualTo(false);
+    }
+
+    @Test
+    public void unfilteredOverBudget()
+    {
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", "{ composers { id } }"))
+                .exchange()
+                .expectBody()
+                .jsonPath("$.data").doesNotExist()
+                .jsonPath("$.errors[0].extensions.classification").isEqualTo("ExecutionAborted");
+    }
+}
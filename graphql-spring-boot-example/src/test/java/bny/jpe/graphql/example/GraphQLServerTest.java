@@ -16,8 +16,15 @@
 
 package bny.jpe.graphql.example;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -28,8 +35,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureHttpGraphQlTester;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
 import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
 
+import bny.jpe.graphql.example.events.ComposerEvents;
+import bny.jpe.graphql.example.execution.PersistedQueryRegistry;
+import bny.jpe.graphql.example.execution.QueryResultCache;
+import bny.jpe.graphql.kata.PreparsedDocumentCache;
 import bny.jpe.graphql.kata.domain.Composer;
 import bny.jpe.graphql.kata.domain.ComposerInput;
 import bny.jpe.graphql.kata.domain.Composition;
@@ -40,6 +58,7 @@ import bny.jpe.graphql.kata.domain.Location;
 
 import static bny.jpe.graphql.kata.domain.Period.POST_MODERN;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -51,6 +70,24 @@ public class GraphQLServerTest
     @Autowired
     GraphQlTester tester;
 
+    @Autowired
+    PreparsedDocumentCache documentCache;
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    QueryResultCache resultCache;
+
+    @Autowired
+    ComposerEvents events;
+
+    @Autowired
+    PersistedQueryRegistry persistedQueries;
+
+    @Autowired
+    ExecutionGraphQlService graphQlService;
+
     private Integer addedComposerId;
 
     @Test
@@ -125,6 +162,214 @@ public class GraphQLServerTest
                 .matches(l -> l.stream().flatMap(List::stream).anyMatch(c -> "Piano Concerto No. 2".equals(c.title())));
     }
 
+    @Test
+    @Order(0)
+    public void pageThroughComposers()
+    {
+        List<String> lastNames = new ArrayList<>();
+        String after = null;
+        boolean hasNextPage = true;
+        while (hasNextPage)
+        {
+            GraphQlTester.Response page = tester.documentName("composers-page")
+                    .variable("first", 3).variable("after", after).execute();
+            page.path("composersConnection.edges[*].node.lastName").entityList(String.class)
+                    .satisfies(lastNames::addAll);
+            hasNextPage = page.path("composersConnection.pageInfo.hasNextPage").entity(Boolean.class).get();
+            after = page.path("composersConnection.pageInfo.endCursor").entity(String.class).get();
+        }
+        assertEquals(List.of("Bach", "Beethoven", "Mozart", "Schumann", "Palestrina", "Rachmaninoff", "Ravel", "Cage"),
+                     lastNames);
+    }
+
+    @Test
+    @Order(0)
+    public void pageFilteredComposers()
+    {
+        GraphQlTester.Response first = tester.documentName("composers-page")
+                .variable("first", 1).variable("period", "ROMANTIC").execute();
+        first.path("composersConnection.edges[0].node.lastName").entity(String.class).isEqualTo("Schumann")
+                .path("composersConnection.edges[0].node.compositionsConnection.edges[0].node.title")
+                .entity(String.class).isEqualTo("Piano Concerto in A minor")
+                .path("composersConnection.edges[0].node.compositionsConnection.pageInfo.hasNextPage")
+                .entity(Boolean.class).isEqualTo(true)
+                .path("composersConnection.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(true);
+        String after = first.path("composersConnection.pageInfo.endCursor").entity(String.class).get();
+
+        tester.documentName("composers-page")
+                .variable("first", 1).variable("after", after).variable("period", "ROMANTIC").execute()
+                .path("composersConnection.edges[0].node.lastName").entity(String.class).isEqualTo("Rachmaninoff")
+                .path("composersConnection.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(false);
+
+        tester.documentName("composers-page").variable("after", "not a cursor").execute()
+                .errors().expect(error -> error.getMessage().startsWith("Invalid cursor"));
+    }
+
+    @Test
+    @Order(0)
+    public void streamComposersOverServerSentEvents()
+    {
+        String subscription = "subscription { streamComposers(country: \"Austria\") { lastName location { city } } }";
+        List<ServerSentEvent<String>> events = client.post().uri("/graphql")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(Map.of("query", subscription))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>()
+                {
+                })
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        List<String> data = events.stream().filter(event -> "next".equals(event.event()))
+                .map(ServerSentEvent::data).toList();
+        assertEquals(2, data.size());
+        assertTrue(data.get(0).contains("\"lastName\":\"Beethoven\"") && data.get(0).contains("Vienna"));
+        assertTrue(data.get(1).contains("\"lastName\":\"Mozart\""));
+        assertEquals("complete", events.get(events.size() - 1).event());
+    }
+
+    @Test
+    @Order(0)
+    public void estimateOperationCost()
+    {
+        // 8 composers, each with 17 / 8 compositions rounded up, at a weight of 1 per composer and per composition.
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", "{ composers { lastName compositions { title } } }"))
+                .exchange()
+                .expectBody()
+                .jsonPath("$.extensions.cost.estimated").isEqualTo(32)
+                .jsonPath("$.extensions.cost.overBudget").isEqualTo(false);
+
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", """
+                        { composersConnection(first: 100) {
+                            edges { node { compositionsConnection(first: 100) { edges { node { title } } } } } } }"""))
+                .exchange()
+                .expectBody()
+                .jsonPath("$.data").doesNotExist()
+                .jsonPath("$.errors[0].extensions.classification").isEqualTo("ExecutionAborted")
+                .jsonPath("$.extensions.cost.estimated").isEqualTo(10100);
+    }
+
+    @Test
+    @Order(0)
+    public void reuseParsedDocuments()
+    {
+        tester.documentName("get-composer-by-id").variable("id", "1").execute();
+        long hits = documentCache.hits();
+
+        tester.documentName("get-composer-by-id").variable("id", "3").execute()
+                .path("composer").entity(Composer.class)
+                .satisfies(c -> assertEquals("Mozart", c.lastName()));
+        assertEquals(hits + 1, documentCache.hits());
+    }
+
+    @Test
+    @Order(0)
+    public void cacheRepeatedQueries()
+    {
+        tester.documentName("composers-query").variable("period", "BAROQUE").execute();
+        long hits = resultCache.hits();
+
+        tester.documentName("composers-query").variable("period", "BAROQUE").execute()
+                .path("composers").entityList(Composer.class)
+                .hasSize(1)
+                .matches(l -> l.stream().allMatch(c -> "Bach".equals(c.lastName())));
+        assertEquals(hits + 1, resultCache.hits());
+    }
+
+    @Test
+    @Order(0)
+    public void getPreloadedPersistedQuery() throws IOException
+    {
+        assertTrue(persistedQueries.preloaded() > 0);
+        String getComposer = persistedQuery(hash("get-composer-by-id"));
+        String deleteComposition = persistedQuery(hash("delete-composition"));
+
+        client.get()
+                .uri(uri -> uri.path("/graphql")
+                        .queryParam("variables", "{variables}")
+                        .queryParam("extensions", "{extensions}")
+                        .build("{\"id\": \"2\"}", getComposer))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.composer.lastName").isEqualTo("Beethoven");
+
+        client.get()
+                .uri(uri -> uri.path("/graphql")
+                        .queryParam("variables", "{variables}")
+                        .queryParam("extensions", "{extensions}")
+                        .build("{\"composerId\": \"2\", \"title\": \"Symphony No. 5\"}",
+                               deleteComposition))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.errors[0].extensions.classification").isEqualTo("OperationNotSupported");
+    }
+
+    @Test
+    @Order(0)
+    public void registerPersistedQueryOnMiss()
+    {
+        String query = "{ composer(id: 4) { lastName } }";
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1,
+                                                                         "sha256Hash", PersistedQueryRegistry.sha256(query)));
+
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("extensions", extensions))
+                .exchange()
+                .expectBody().jsonPath("$.errors[0].message").isEqualTo("PersistedQueryNotFound");
+
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", query, "extensions", extensions))
+                .exchange()
+                .expectBody().jsonPath("$.data.composer.lastName").isEqualTo("Schumann");
+
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("extensions", extensions))
+                .exchange()
+                .expectBody().jsonPath("$.data.composer.lastName").isEqualTo("Schumann");
+    }
+
+    @Test
+    @Order(0)
+    public void exportResolverMetrics()
+    {
+        client.post().uri("/graphql")
+                .bodyValue(Map.of("query", "query exportMetrics { composers { lastName compositions { title } } }"))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.get()
+                .uri("/actuator/metrics/graphql.field?tag=operation:exportMetrics&tag=field:Query.composers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isEqualTo(1.0);
+
+        client.get()
+                .uri("/actuator/metrics/graphql.field.result.size?tag=field:Composer.compositions")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.availableTags[?(@.tag == 'operation')].values[*]").value(v -> assertTrue(
+                        v.toString().contains("exportMetrics")));
+    }
+
+    @Test
+    @Order(0)
+    public void exportResultCacheMetrics()
+    {
+        long hits = resultCache.hits();
+        client.get()
+                .uri("/actuator/metrics/cache.gets?tag=cache:" + QueryResultCache.NAME + "&tag=result:hit")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isEqualTo((double) hits);
+    }
+
     @Test
     @Order(1)
     public void addComposer()
@@ -218,4 +463,74 @@ public class GraphQLServerTest
                 })
                 .matches(l -> l.stream().mapToLong(List::size).sum() == 0);
     }
+
+    @Test
+    @Order(5)
+    public void notifyChanges() throws Exception
+    {
+        CompletableFuture<GraphQlTester.Response> compositionsChanged = new CompletableFuture<>();
+        Disposable compositionsSubscription = subscribe(
+                "subscription { compositionsChanged(composerId: " + addedComposerId + ") { compositions { title } } }",
+                compositionsChanged);
+        try
+        {
+            tester.documentName("add-compositions")
+                    .variable("composerId", addedComposerId)
+                    .variable("compositions",
+                              List.of(new CompositionInput("Piece", "The Unanswered Question", "G", null, null)))
+                    .executeAndVerify();
+            compositionsChanged.get(10, TimeUnit.SECONDS)
+                    .path("compositionsChanged.compositions[*].title").entityList(String.class)
+                    .contains("The Unanswered Question");
+        }
+        finally
+        {
+            compositionsSubscription.dispose();
+        }
+
+        CompletableFuture<GraphQlTester.Response> composerChanged = new CompletableFuture<>();
+        Disposable composerSubscription = subscribe("subscription { composerChanged { id firstName } }",
+                                                    composerChanged);
+        try
+        {
+            tester.documentName("update-composer")
+                    .variable("composer", new ComposerInput("Charles Edward", "Ives", null, null, null, null))
+                    .variable("id", addedComposerId)
+                    .executeAndVerify();
+            composerChanged.get(10, TimeUnit.SECONDS)
+                    .path("composerChanged.firstName").entity(String.class).isEqualTo("Charles Edward");
+        }
+        finally
+        {
+            composerSubscription.dispose();
+        }
+        assertEquals(0, events.subscribers());
+    }
+
+    /**
+     * Subscribes in process rather than over server-sent events, so the subscription is registered with the sink by
+     * the time this returns and no event published afterwards is missed.
+     */
+    private Disposable subscribe(String subscription, CompletableFuture<GraphQlTester.Response> first)
+    {
+        int subscribers = events.subscribers();
+        Disposable disposable = ExecutionGraphQlServiceTester.create(graphQlService)
+                .document(subscription)
+                .executeSubscription()
+                .toFlux()
+                .subscribe(first::complete, first::completeExceptionally);
+        assertEquals(subscribers + 1, events.subscribers());
+        return disposable;
+    }
+
+    private static String hash(String documentName) throws IOException
+    {
+        ClassPathResource document = new ClassPathResource("graphql-persisted/" + documentName + ".graphql");
+        return PersistedQueryRegistry.sha256(document.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    private static String persistedQuery(String hash)
+    {
+        return "{\"persistedQuery\": {\"version\": 1, \"sha256Hash\": \"" + hash + "\"}}";
+    }
 }
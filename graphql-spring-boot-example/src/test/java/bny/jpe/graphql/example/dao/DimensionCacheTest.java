@@ -0,0 +1,101 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.dao;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import bny.jpe.graphql.kata.domain.ComposerInput;
+import bny.jpe.graphql.kata.domain.Location;
+import bny.jpe.graphql.kata.domain.Period;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the repository's location cache never holds a row the database does not: a cached location is not
+ * upserted again, and a new one is only cached once the transaction that upserted it commits.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dimensions",
+        "composers.graphql.cost.statistics-refresh=1h",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=bny.jpe.graphql.example.dao.SqlCapture"})
+public class DimensionCacheTest
+{
+    @Autowired
+    ComposerRepository repository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void clear()
+    {
+        SqlCapture.drain();
+    }
+
+    @Test
+    public void cachedLocationSkipsUpsert()
+    {
+        // The fixtures' locations are cached once the application is ready.
+        repository.addComposer(composer("Joseph", "Haydn", new Location("Vienna", "Austria")));
+        assertEquals(0, upserts());
+    }
+
+    @Test
+    public void newLocationIsCachedAfterCommit()
+    {
+        Location salzburg = new Location("Salzburg", "Austria");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            repository.addComposer(composer("Heinrich", "Biber", salzburg));
+            repository.addComposer(composer("Georg", "Muffat", salzburg));
+        });
+        assertEquals(2, upserts());
+
+        repository.addComposer(composer("Leopold", "Mozart", salzburg));
+        assertEquals(0, upserts());
+    }
+
+    @Test
+    public void rolledBackLocationIsNotCached()
+    {
+        Location bonn = new Location("Bonn", "Germany");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            repository.addComposer(composer("Ferdinand", "Ries", bonn));
+            status.setRollbackOnly();
+        });
+        assertEquals(1, upserts());
+
+        repository.addComposer(composer("Ferdinand", "Ries", bonn));
+        assertEquals(1, upserts());
+    }
+
+    private static ComposerInput composer(String firstName, String lastName, Location location)
+    {
+        return new ComposerInput(firstName, lastName, LocalDate.of(1700, 1, 1), location, null, Period.CLASSICAL);
+    }
+
+    private static long upserts()
+    {
+        return SqlCapture.drain().stream().filter(sql -> sql.contains("MERGE INTO location")).count();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.dao;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import bny.jpe.graphql.kata.domain.Composer;
+import bny.jpe.graphql.kata.domain.Period;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the SQL the repository sends: filtered queries must not scan a whole table under H2 {@code EXPLAIN},
+ * and a GraphQL query must only join the associations it selects.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan",
+        "composers.graphql.cost.statistics-refresh=1h",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=bny.jpe.graphql.example.dao.SqlCapture"})
+@AutoConfigureGraphQlTester
+public class QueryPlanTest
+{
+    @Autowired
+    ComposerRepository repository;
+
+    @Autowired
+    GraphQlTester tester;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    public void clear()
+    {
+        SqlCapture.drain();
+    }
+
+    @Test
+    public void scalarSelectionIsOneStatement()
+    {
+        tester.document("{ composers { lastName } }").execute()
+                .path("composers").entityList(Composer.class).hasSize(8);
+        assertEquals(1, SqlCapture.drain().size());
+    }
+
+    @Test
+    public void selectedAssociationsAreJoined()
+    {
+        tester.document("""
+                                { composers(lastName: "Rachmaninoff") {
+                                    location { city }
+                                    compositions(subtype: "Concerto") { ... on Concerto { soloInstrument { name } } } } }""")
+                .execute()
+                .path("composers[0].location.city").entity(String.class).isEqualTo("Moscow")
+                .path("composers[0].compositions[0].soloInstrument.name").entity(String.class).isEqualTo("Piano");
+        assertEquals(2, SqlCapture.drain().size());
+    }
+
+    @Test
+    public void composersFilters() throws SQLException
+    {
+        repository.composers(Period.ROMANTIC, null, null, null, null, ComposerRepository.FETCHABLE);
+        repository.composers(null, "Austria", null, null, null, ComposerRepository.FETCHABLE);
+        repository.composers(null, null, "Vienna", null, null, ComposerRepository.FETCHABLE);
+        repository.composers(null, null, null, "Piano", null, ComposerRepository.FETCHABLE);
+        repository.composers(null, null, null, null, "Beethoven", ComposerRepository.FETCHABLE);
+        repository.composers(Period.CLASSICAL, "Austria", "Vienna", "Piano", "Mozart", ComposerRepository.FETCHABLE);
+        assertIndexed(SqlCapture.drain());
+    }
+
+    @Test
+    public void compositionsByComposer() throws SQLException
+    {
+        repository.compositionsByComposer(Set.of(1, 2, 3), true);
+        assertIndexed(SqlCapture.drain());
+    }
+
+    @Test
+    public void keysetPages() throws SQLException
+    {
+        repository.composersPage(null, null, null, null, null, 3, 2, ComposerRepository.FETCHABLE);
+        repository.composersPage(Period.ROMANTIC, "Germany", null, null, null, 3, 2, ComposerRepository.FETCHABLE);
+        repository.compositionsPage(1, null, null, 0, 2, true);
+        repository.compositionsPage(1, "Dm", "Piece", 0, 2, true);
+        assertIndexed(SqlCapture.drain());
+    }
+
+    @Test
+    public void deleteCompositionLookup() throws SQLException
+    {
+        assertThrows(EmptyResultDataAccessException.class, () -> repository.deleteComposition(2, "No such title"));
+        assertIndexed(SqlCapture.drain());
+    }
+
+    private void assertIndexed(List<String> statements) throws SQLException
+    {
+        assertFalse(statements.isEmpty());
+        for (String sql : statements)
+        {
+            String plan = explain(sql);
+            assertFalse(plan.contains(".tableScan"), () -> "Table scan in plan for " + sql + ":\n" + plan);
+        }
+    }
+
+    /**
+     * Binds a sample value of the right type to every parameter, since H2 plans the statement as it would run it.
+     */
+    private String explain(String sql) throws SQLException
+    {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql))
+        {
+            ParameterMetaData parameters = explain.getParameterMetaData();
+            for (int i = 1; i <= parameters.getParameterCount(); i++)
+            {
+                int type = parameters.getParameterType(i);
+                explain.setObject(i, type == Types.INTEGER || type == Types.BIGINT ? (Object) 1 : "x");
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet result = explain.executeQuery())
+            {
+                while (result.next())
+                {
+                    plan.append(result.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2024 The Bank of New York Mellon.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package bny.jpe.graphql.example.execution;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.graphql.server.WebGraphQlInterceptor.Chain;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResultImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryResultCacheTest
+{
+    private final AtomicInteger executions = new AtomicInteger();
+
+    /**
+     * Executes every request, tagging its result with the composer it reads.
+     */
+    private final Chain chain = request -> {
+        executions.incrementAndGet();
+        ExecutionInput input = request.toExecutionInput();
+        QueryResultCache.tag(input.getGraphQLContext(), "composer:2");
+        return Mono.just(new WebGraphQlResponse(new DefaultExecutionGraphQlResponse(
+                input, ExecutionResultImpl.newExecutionResult().data(Map.of()).build())));
+    };
+
+    @Test
+    public void rememberRecentInvalidationsOnly()
+    {
+        QueryResultCache cache = new QueryResultCache(10, 3);
+        IntStream.rangeClosed(1, 100).forEach(id -> cache.invalidate("composer:" + id));
+        assertEquals(3, cache.invalidatedTags());
+    }
+
+    @Test
+    public void forgottenInvalidationExpiresOlderResults()
+    {
+        QueryResultCache cache = new QueryResultCache(10, 1);
+        query(cache);
+        query(cache);
+        assertEquals(1, executions.get());
+
+        cache.invalidate("composer:2");
+        cache.invalidate("composer:3");
+        assertEquals(1, cache.invalidatedTags());
+        query(cache);
+        assertEquals(2, executions.get());
+        query(cache);
+        assertEquals(2, executions.get());
+    }
+
+    private void query(QueryResultCache cache)
+    {
+        WebGraphQlRequest request = new WebGraphQlRequest(URI.create("/graphql"),
+                                                          new HttpHeaders(),
+                                                          null,
+                                                          null,
+                                                          Map.of(),
+                                                          Map.of("query", "{ composer(id: 2) { lastName } }"),
+                                                          "1",
+                                                          null);
+        cache.intercept(request, chain).block();
+    }
+}